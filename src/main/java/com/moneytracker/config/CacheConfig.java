@@ -0,0 +1,17 @@
+package com.moneytracker.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * In-process Caffeine caches (size, TTL and stats are set by spring.cache.caffeine.spec).
+ * Caches listed in spring.cache.cache-names are registered with actuator metrics at startup.
+ * Only immutable values are cached (AuthenticatedUser snapshots, ids), never JPA entities.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String USER_DETAILS_CACHE = "userDetails";
+    public static final String USER_IDS_CACHE = "userIds";
+}
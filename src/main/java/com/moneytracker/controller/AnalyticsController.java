@@ -1,15 +1,22 @@
 package com.moneytracker.controller;
 
 import com.moneytracker.dto.MonthlyAnalyticsDTO;
+import com.moneytracker.dto.TrendPointDTO;
+import com.moneytracker.model.PaymentMethod;
+import com.moneytracker.model.RollupGranularity;
 import com.moneytracker.model.User;
+import com.moneytracker.security.AuthenticatedUser;
 import com.moneytracker.service.MonthlyAnalyticsService;
+import com.moneytracker.service.SpendingRollupService;
 import com.moneytracker.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.List;
 
@@ -20,20 +27,46 @@ public class AnalyticsController {
 
     private final MonthlyAnalyticsService analyticsService;
     private final UserService userService;
+    private final SpendingRollupService rollupService;
 
     @GetMapping("/monthly")
     public ResponseEntity<List<MonthlyAnalyticsDTO>> getMonthlyAnalytics(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @RequestParam(defaultValue = "12") int months) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+        Long userId = currentUser.getId();
         return ResponseEntity.ok(analyticsService.getUserMonthlyAnalytics(userId, months));
     }
 
+    // e.g. /api/analytics/monthly/category-above?category=Food&amount=500
+    @GetMapping("/monthly/category-above")
+    public ResponseEntity<List<MonthlyAnalyticsDTO>> getMonthsWithCategorySpendingAbove(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam String category,
+            @RequestParam BigDecimal amount) {
+        Long userId = currentUser.getId();
+        return ResponseEntity.ok(analyticsService.getMonthsWithCategorySpendingAbove(userId, category, amount));
+    }
+
+    // e.g. /api/analytics/trend?from=2021-01-01&to=2025-12-31&granularity=MONTH&categoryId=3
+    @GetMapping("/trend")
+    public ResponseEntity<List<TrendPointDTO>> getSpendingTrend(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "MONTH") RollupGranularity granularity,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) PaymentMethod paymentMethod) {
+        Long userId = currentUser.getId();
+        return ResponseEntity.ok(
+                rollupService.getSpendingTrend(userId, from, to, granularity, categoryId, paymentMethod)
+        );
+    }
+
     @PostMapping("/generate/{yearMonth}")
     public ResponseEntity<MonthlyAnalyticsDTO> generateMonthlyReport(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @PathVariable String yearMonth) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+        Long userId = currentUser.getId();
         User user = userService.getUserById(userId);
         return ResponseEntity.ok(
                 analyticsService.generateMonthlyAnalytics(user, YearMonth.parse(yearMonth))
@@ -1,14 +1,13 @@
 package com.moneytracker.controller;
 
 import com.moneytracker.dto.BudgetDTO;
+import com.moneytracker.security.AuthenticatedUser;
 import com.moneytracker.service.BudgetService;
-import com.moneytracker.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -19,26 +18,25 @@ import java.util.List;
 public class BudgetController {
 
     private final BudgetService budgetService;
-    private final UserService userService;
 
     @GetMapping
-    public ResponseEntity<List<BudgetDTO>> getUserBudgets(@AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+    public ResponseEntity<List<BudgetDTO>> getUserBudgets(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         return ResponseEntity.ok(budgetService.getUserBudgets(userId));
     }
 
     @PostMapping
     public ResponseEntity<BudgetDTO> createBudget(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @Valid @RequestBody BudgetDTO budgetDTO) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+        Long userId = currentUser.getId();
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(budgetService.createBudget(userId, budgetDTO));
     }
 
     @PostMapping("/check-alerts")
-    public ResponseEntity<Void> checkBudgetAlerts(@AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+    public ResponseEntity<Void> checkBudgetAlerts(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         budgetService.checkBudgetAlerts(userId);
         return ResponseEntity.ok().build();
     }
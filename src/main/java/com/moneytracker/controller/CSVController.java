@@ -1,7 +1,8 @@
 package com.moneytracker.controller;
 
-import com.moneytracker.model.Transaction;
+import com.moneytracker.dto.IngestionResultDTO;
 import com.moneytracker.model.User;
+import com.moneytracker.security.AuthenticatedUser;
 import com.moneytracker.service.CSVImportService;
 import com.moneytracker.service.UserService;
 import lombok.RequiredArgsConstructor;
@@ -9,12 +10,9 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/csv")
 @RequiredArgsConstructor
@@ -24,12 +22,12 @@ public class CSVController {
     private final UserService userService;
 
     @PostMapping("/import")
-    public ResponseEntity<List<Transaction>> importCSV(
-            @AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<IngestionResultDTO> importCSV(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @RequestParam("file") MultipartFile file) throws Exception {
-        User user = userService.getUserByUsername(userDetails.getUsername());
-        List<Transaction> transactions = csvImportService.importTransactions(file, user);
-        return ResponseEntity.ok(transactions);
+        User user = userService.getUserById(currentUser.getId());
+        IngestionResultDTO result = csvImportService.importTransactions(file, user);
+        return ResponseEntity.ok(result);
     }
 
     @GetMapping("/template")
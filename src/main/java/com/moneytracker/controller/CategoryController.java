@@ -1,14 +1,13 @@
 package com.moneytracker.controller;
 
 import com.moneytracker.dto.CategoryDTO;
+import com.moneytracker.security.AuthenticatedUser;
 import com.moneytracker.service.CategoryService;
-import com.moneytracker.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -19,15 +18,14 @@ import java.util.List;
 public class CategoryController {
 
     private final CategoryService categoryService;
-    private final UserService userService;
 
     /**
      * ✅ SECURE - Get only current user's categories
      */
     @GetMapping
     public ResponseEntity<List<CategoryDTO>> getAllCategories(
-            @AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         List<CategoryDTO> categories = categoryService.getUserCategories(userId);
         return ResponseEntity.ok(categories);
     }
@@ -38,8 +36,8 @@ public class CategoryController {
     @GetMapping("/{id}")
     public ResponseEntity<CategoryDTO> getCategoryById(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         CategoryDTO category = categoryService.getCategoryById(id, userId);
         return ResponseEntity.ok(category);
     }
@@ -50,8 +48,8 @@ public class CategoryController {
     @PostMapping
     public ResponseEntity<CategoryDTO> createCategory(
             @Valid @RequestBody CategoryDTO categoryDTO,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         CategoryDTO createdCategory = categoryService.createCategory(categoryDTO, userId);
         return ResponseEntity.status(HttpStatus.CREATED).body(createdCategory);
     }
@@ -63,8 +61,8 @@ public class CategoryController {
     public ResponseEntity<CategoryDTO> updateCategory(
             @PathVariable Long id,
             @Valid @RequestBody CategoryDTO categoryDTO,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         CategoryDTO updatedCategory = categoryService.updateCategory(id, categoryDTO, userId);
         return ResponseEntity.ok(updatedCategory);
     }
@@ -75,8 +73,8 @@ public class CategoryController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteCategory(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         categoryService.deleteCategory(id, userId);
         return ResponseEntity.noContent().build();
     }
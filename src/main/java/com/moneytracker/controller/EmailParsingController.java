@@ -1,19 +1,21 @@
 package com.moneytracker.controller;
 
 import com.moneytracker.dto.EmailConfigDTO;
+import com.moneytracker.dto.EmailParsingJobDTO;
 import com.moneytracker.model.User;
-import com.moneytracker.service.EmailParsingService;
+import com.moneytracker.security.AuthenticatedUser;
+import com.moneytracker.service.EmailParsingJobService;
 import com.moneytracker.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * REST Controller for Email Parsing functionality
@@ -25,7 +27,7 @@ import java.util.Map;
 @Slf4j
 public class EmailParsingController {
 
-    private final EmailParsingService emailParsingService;
+    private final EmailParsingJobService emailParsingJobService;
     private final UserService userService;
 
     /**
@@ -33,46 +35,47 @@ public class EmailParsingController {
      * POST /api/email-parsing/trigger
      */
     @PostMapping("/trigger")
-    public ResponseEntity<Map<String, String>> triggerEmailParsing(
-            @AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<Map<String, Object>> triggerEmailParsing(
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
-        log.info("Manual email parsing triggered by user: {}", userDetails.getUsername());
+        log.info("Manual email parsing triggered by user: {}", currentUser.getUsername());
 
         try {
-            User user = userService.getUserByUsername(userDetails.getUsername());
+            User user = userService.getUserById(currentUser.getId());
 
             if (!user.getEmailParsingEnabled()) {
-                Map<String, String> response = new HashMap<>();
+                Map<String, Object> response = new HashMap<>();
                 response.put("status", "error");
                 response.put("message", "Email parsing is not enabled. Please configure it in settings first.");
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
             }
 
             if (user.getEmailImapUsername() == null || user.getEmailImapPassword() == null) {
-                Map<String, String> response = new HashMap<>();
+                Map<String, Object> response = new HashMap<>();
                 response.put("status", "error");
                 response.put("message", "Email credentials not configured. Please update your settings.");
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
             }
 
-            // Trigger parsing in a separate thread to avoid timeout
-            new Thread(() -> {
-                try {
-                    emailParsingService.parseEmailsForUser(user);
-                } catch (Exception e) {
-                    log.error("Error parsing emails for user {}: {}", user.getUsername(), e.getMessage());
-                }
-            }).start();
+            // Runs in the background; a sync already in progress for this user is joined
+            EmailParsingJobDTO job = emailParsingJobService.submit(user);
 
-            Map<String, String> response = new HashMap<>();
+            Map<String, Object> response = new HashMap<>();
             response.put("status", "success");
             response.put("message", "Email parsing started. You will receive notifications when complete.");
+            response.put("job", job);
 
             return ResponseEntity.ok(response);
 
+        } catch (RejectedExecutionException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "error");
+            response.put("message", "Email parsing is busy right now. Please try again in a few minutes.");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+
         } catch (Exception e) {
             log.error("Error triggering email parsing: {}", e.getMessage());
-            Map<String, String> response = new HashMap<>();
+            Map<String, Object> response = new HashMap<>();
             response.put("status", "error");
             response.put("message", "Failed to start email parsing: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
@@ -85,13 +88,13 @@ public class EmailParsingController {
      */
     @PutMapping("/config")
     public ResponseEntity<Map<String, Object>> updateEmailConfig(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @RequestBody EmailConfigDTO config) {
 
-        log.info("Updating email config for user: {}", userDetails.getUsername());
+        log.info("Updating email config for user: {}", currentUser.getUsername());
 
         try {
-            Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            Long userId = currentUser.getId();
             User updatedUser = userService.updateEmailParsingConfig(userId, config);
 
             Map<String, Object> response = new HashMap<>();
@@ -116,12 +119,12 @@ public class EmailParsingController {
      */
     @GetMapping("/config")
     public ResponseEntity<EmailConfigDTO> getEmailConfig(
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
-        log.info("Retrieving email config for user: {}", userDetails.getUsername());
+        log.info("Retrieving email config for user: {}", currentUser.getUsername());
 
         try {
-            Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            Long userId = currentUser.getId();
             EmailConfigDTO config = userService.getEmailParsingConfig(userId);
 
             return ResponseEntity.ok(config);
@@ -138,12 +141,12 @@ public class EmailParsingController {
      */
     @GetMapping("/status")
     public ResponseEntity<Map<String, Object>> getEmailParsingStatus(
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
-        log.info("Getting email parsing status for user: {}", userDetails.getUsername());
+        log.info("Getting email parsing status for user: {}", currentUser.getUsername());
 
         try {
-            User user = userService.getUserByUsername(userDetails.getUsername());
+            User user = userService.getUserById(currentUser.getId());
 
             Map<String, Object> status = new HashMap<>();
             status.put("enabled", user.getEmailParsingEnabled());
@@ -151,6 +154,7 @@ public class EmailParsingController {
                     user.getEmailImapPassword() != null);
             status.put("host", user.getEmailImapHost());
             status.put("username", user.getEmailImapUsername());
+            status.put("job", emailParsingJobService.getJob(user.getId()).orElse(null));
 
             return ResponseEntity.ok(status);
 
@@ -166,12 +170,12 @@ public class EmailParsingController {
      */
     @PostMapping("/test")
     public ResponseEntity<Map<String, String>> testEmailConnection(
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
-        log.info("Testing email connection for user: {}", userDetails.getUsername());
+        log.info("Testing email connection for user: {}", currentUser.getUsername());
 
         try {
-            User user = userService.getUserByUsername(userDetails.getUsername());
+            User user = userService.getUserById(currentUser.getId());
 
             if (user.getEmailImapUsername() == null || user.getEmailImapPassword() == null) {
                 Map<String, String> response = new HashMap<>();
@@ -203,12 +207,12 @@ public class EmailParsingController {
      */
     @PostMapping("/disable")
     public ResponseEntity<Map<String, String>> disableEmailParsing(
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
-        log.info("Disabling email parsing for user: {}", userDetails.getUsername());
+        log.info("Disabling email parsing for user: {}", currentUser.getUsername());
 
         try {
-            Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            Long userId = currentUser.getId();
 
             EmailConfigDTO config = new EmailConfigDTO();
             config.setEmailParsingEnabled(false);
@@ -0,0 +1,62 @@
+package com.moneytracker.controller;
+
+import com.moneytracker.dto.EmailRuleSetDTO;
+import com.moneytracker.dto.EmailSampleMessageDTO;
+import com.moneytracker.dto.RuleDryRunDTO;
+import com.moneytracker.service.EmailRuleService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Admin-only management of the email parsing rule sets and their sample messages
+ */
+@RestController
+@RequestMapping("/api/admin/email-rules")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class EmailRuleAdminController {
+
+    private final EmailRuleService emailRuleService;
+
+    @GetMapping
+    public ResponseEntity<List<EmailRuleSetDTO>> getRuleSets() {
+        return ResponseEntity.ok(emailRuleService.getRuleSets());
+    }
+
+    @PostMapping
+    public ResponseEntity<EmailRuleSetDTO> createRuleSet(@Valid @RequestBody EmailRuleSetDTO ruleSetDTO) {
+        return new ResponseEntity<>(emailRuleService.createRuleSet(ruleSetDTO), HttpStatus.CREATED);
+    }
+
+    @PostMapping("/{id}/activate")
+    public ResponseEntity<EmailRuleSetDTO> activateRuleSet(@PathVariable Long id) {
+        return ResponseEntity.ok(emailRuleService.activateRuleSet(id));
+    }
+
+    @PostMapping("/{id}/dry-run")
+    public ResponseEntity<RuleDryRunDTO> dryRun(@PathVariable Long id) {
+        return ResponseEntity.ok(emailRuleService.dryRun(id));
+    }
+
+    @GetMapping("/samples")
+    public ResponseEntity<List<EmailSampleMessageDTO>> getSampleMessages() {
+        return ResponseEntity.ok(emailRuleService.getSampleMessages());
+    }
+
+    @PostMapping("/samples")
+    public ResponseEntity<EmailSampleMessageDTO> addSampleMessage(@Valid @RequestBody EmailSampleMessageDTO sampleDTO) {
+        return new ResponseEntity<>(emailRuleService.addSampleMessage(sampleDTO), HttpStatus.CREATED);
+    }
+
+    @DeleteMapping("/samples/{id}")
+    public ResponseEntity<Void> deleteSampleMessage(@PathVariable Long id) {
+        emailRuleService.deleteSampleMessage(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,12 +1,11 @@
 package com.moneytracker.controller;
 
 import com.moneytracker.model.Notification;
+import com.moneytracker.security.AuthenticatedUser;
 import com.moneytracker.service.NotificationService;
-import com.moneytracker.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -17,25 +16,24 @@ import java.util.List;
 public class NotificationController {
 
     private final NotificationService notificationService;
-    private final UserService userService;
 
     @GetMapping
     public ResponseEntity<List<Notification>> getNotifications(
-            @AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         return ResponseEntity.ok(notificationService.getUserNotifications(userId));
     }
 
     @GetMapping("/unread")
     public ResponseEntity<List<Notification>> getUnreadNotifications(
-            @AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         return ResponseEntity.ok(notificationService.getUnreadNotifications(userId));
     }
 
     @GetMapping("/unread-count")
-    public ResponseEntity<Long> getUnreadCount(@AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+    public ResponseEntity<Long> getUnreadCount(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         return ResponseEntity.ok(notificationService.getUnreadCount(userId));
     }
 
@@ -46,8 +44,8 @@ public class NotificationController {
     }
 
     @PutMapping("/mark-all-read")
-    public ResponseEntity<Void> markAllAsRead(@AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+    public ResponseEntity<Void> markAllAsRead(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         notificationService.markAllAsRead(userId);
         return ResponseEntity.ok().build();
     }
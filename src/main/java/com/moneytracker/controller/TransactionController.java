@@ -1,49 +1,81 @@
 package com.moneytracker.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.moneytracker.dto.SpendingSummaryDTO;
 import com.moneytracker.dto.TransactionDTO;
+import com.moneytracker.dto.TransactionPageDTO;
 import com.moneytracker.model.PaymentMethod;
+import com.moneytracker.security.AuthenticatedUser;
 import com.moneytracker.service.TransactionService;
-import com.moneytracker.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/api/transactions")
 @RequiredArgsConstructor
 public class TransactionController {
 
+    private static final int NDJSON_FLUSH_EVERY = 500;
+
     private final TransactionService transactionService;
-    private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     /**
      * ✅ SECURE - Get only current user's transactions
      */
     @GetMapping
     public ResponseEntity<List<TransactionDTO>> getAllTransactions(
-            @AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         List<TransactionDTO> transactions = transactionService.getUserTransactions(userId);
         return ResponseEntity.ok(transactions);
     }
 
+    /**
+     * ✅ SECURE - Keyset-paginated transactions for current user
+     * GET /api/transactions?limit=50&cursor=...
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<TransactionPageDTO> getTransactionsPage(
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
+        return ResponseEntity.ok(transactionService.getUserTransactionsPage(userId, cursor, limit));
+    }
+
+    /**
+     * ✅ SECURE - Streams all of current user's transactions as NDJSON
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTransactions(
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
+        return streamAsNdjson(sink -> transactionService.streamUserTransactions(userId, sink));
+    }
+
     /**
      * ✅ SECURE - Get transaction only if belongs to current user
      */
     @GetMapping("/{id}")
     public ResponseEntity<TransactionDTO> getTransactionById(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         TransactionDTO transaction = transactionService.getTransactionById(id, userId);
         return ResponseEntity.ok(transaction);
     }
@@ -55,47 +87,111 @@ public class TransactionController {
     public ResponseEntity<List<TransactionDTO>> getTransactionsByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         List<TransactionDTO> transactions = transactionService.getUserTransactionsByDateRange(
                 userId, startDate, endDate);
         return ResponseEntity.ok(transactions);
     }
 
+    @GetMapping(value = "/date-range", params = "limit")
+    public ResponseEntity<TransactionPageDTO> getTransactionsByDateRangePage(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
+        return ResponseEntity.ok(transactionService.getUserTransactionsByDateRangePage(
+                userId, startDate, endDate, cursor, limit));
+    }
+
+    @GetMapping(value = "/date-range", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTransactionsByDateRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
+        return streamAsNdjson(sink -> transactionService.streamUserTransactionsByDateRange(
+                userId, startDate, endDate, sink));
+    }
+
     /**
      * ✅ SECURE - Get user's transactions by category
      */
     @GetMapping("/category/{categoryId}")
     public ResponseEntity<List<TransactionDTO>> getTransactionsByCategory(
             @PathVariable Long categoryId,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         List<TransactionDTO> transactions = transactionService.getUserTransactionsByCategory(
                 userId, categoryId);
         return ResponseEntity.ok(transactions);
     }
 
+    @GetMapping(value = "/category/{categoryId}", params = "limit")
+    public ResponseEntity<TransactionPageDTO> getTransactionsByCategoryPage(
+            @PathVariable Long categoryId,
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
+        return ResponseEntity.ok(transactionService.getUserTransactionsByCategoryPage(
+                userId, categoryId, cursor, limit));
+    }
+
+    @GetMapping(value = "/category/{categoryId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTransactionsByCategory(
+            @PathVariable Long categoryId,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
+        // Checked up front: once the body starts, the 200 status is already on the wire
+        transactionService.verifyCategoryAccess(userId, categoryId);
+        return streamAsNdjson(sink -> transactionService.streamUserTransactionsByCategory(
+                userId, categoryId, sink));
+    }
+
     /**
      * ✅ SECURE - Get user's transactions by payment method
      */
     @GetMapping("/payment-method/{paymentMethod}")
     public ResponseEntity<List<TransactionDTO>> getTransactionsByPaymentMethod(
             @PathVariable PaymentMethod paymentMethod,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         List<TransactionDTO> transactions = transactionService.getUserTransactionsByPaymentMethod(
                 userId, paymentMethod);
         return ResponseEntity.ok(transactions);
     }
 
+    @GetMapping(value = "/payment-method/{paymentMethod}", params = "limit")
+    public ResponseEntity<TransactionPageDTO> getTransactionsByPaymentMethodPage(
+            @PathVariable PaymentMethod paymentMethod,
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
+        return ResponseEntity.ok(transactionService.getUserTransactionsByPaymentMethodPage(
+                userId, paymentMethod, cursor, limit));
+    }
+
+    @GetMapping(value = "/payment-method/{paymentMethod}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTransactionsByPaymentMethod(
+            @PathVariable PaymentMethod paymentMethod,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
+        return streamAsNdjson(sink -> transactionService.streamUserTransactionsByPaymentMethod(
+                userId, paymentMethod, sink));
+    }
+
     /**
      * ✅ SECURE - Create transaction for current user
      */
     @PostMapping
     public ResponseEntity<TransactionDTO> createTransaction(
             @Valid @RequestBody TransactionDTO transactionDTO,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         TransactionDTO createdTransaction = transactionService.createTransaction(transactionDTO, userId);
         return ResponseEntity.status(HttpStatus.CREATED).body(createdTransaction);
     }
@@ -107,8 +203,8 @@ public class TransactionController {
     public ResponseEntity<TransactionDTO> updateTransaction(
             @PathVariable Long id,
             @Valid @RequestBody TransactionDTO transactionDTO,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         TransactionDTO updatedTransaction = transactionService.updateTransaction(id, transactionDTO, userId);
         return ResponseEntity.ok(updatedTransaction);
     }
@@ -119,8 +215,8 @@ public class TransactionController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteTransaction(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         transactionService.deleteTransaction(id, userId);
         return ResponseEntity.noContent().build();
     }
@@ -132,9 +228,64 @@ public class TransactionController {
     public ResponseEntity<SpendingSummaryDTO> getSpendingSummary(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.getUserIdByUsername(userDetails.getUsername());
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
         SpendingSummaryDTO summary = transactionService.getUserSpendingSummary(userId, startDate, endDate);
         return ResponseEntity.ok(summary);
     }
+
+    /**
+     * ✅ SECURE - Spending summaries for several periods at once
+     * GET /api/transactions/summary/periods?startDate=a&endDate=b&startDate=c&endDate=d
+     */
+    @GetMapping("/summary/periods")
+    public ResponseEntity<List<SpendingSummaryDTO>> getSpendingSummaries(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) List<LocalDate> startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) List<LocalDate> endDate,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Long userId = currentUser.getId();
+        return ResponseEntity.ok(transactionService.getUserSpendingSummaries(userId, startDate, endDate));
+    }
+
+    /**
+     * Writes one JSON document per line as rows arrive, flushing periodically.
+     * Anything that should fail the request with an error status must be checked before
+     * calling this; the source only runs after the 200 response has been committed.
+     */
+    private ResponseEntity<StreamingResponseBody> streamAsNdjson(Consumer<Consumer<TransactionDTO>> source) {
+        StreamingResponseBody body = out -> {
+            int[] written = {0};
+            try {
+                source.accept(dto -> {
+                    writeLine(out, dto);
+                    if (++written[0] % NDJSON_FLUSH_EVERY == 0) {
+                        flush(out);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private void writeLine(OutputStream out, TransactionDTO dto) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(dto));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flush(OutputStream out) {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -25,4 +25,6 @@ public class EmailConfigDTO {
     private Boolean emailParsingEnabled;
 
     private Integer emailImapPort;
+
+    private Boolean emailPushEnabled;
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.moneytracker.dto;
+
+import com.moneytracker.model.EmailParsingJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailParsingJobDTO {
+    private EmailParsingJobStatus status;
+    private LocalDateTime queuedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private Integer transactionsAdded;
+    private String error;
+}
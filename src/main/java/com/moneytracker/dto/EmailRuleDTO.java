@@ -0,0 +1,24 @@
+package com.moneytracker.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailRuleDTO {
+
+    @NotBlank(message = "Rule name is required")
+    private String name;
+
+    private String senderKeywords;
+    private String subjectPattern;
+
+    @NotBlank(message = "Amount pattern is required")
+    private String amountPattern;
+
+    @NotBlank(message = "Category is required")
+    private String category;
+}
@@ -0,0 +1,26 @@
+package com.moneytracker.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailRuleSetDTO {
+    private Long id;
+    private Long version;
+    private String description;
+    private Boolean isActive;
+    private LocalDateTime createdAt;
+    private LocalDateTime activatedAt;
+
+    @NotEmpty(message = "At least one rule is required")
+    @Valid
+    private List<EmailRuleDTO> rules;
+}
@@ -0,0 +1,22 @@
+package com.moneytracker.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailSampleMessageDTO {
+    private Long id;
+
+    @NotBlank(message = "Sender is required")
+    private String sender;
+
+    private String subject;
+    private String body;
+    private BigDecimal expectedAmount;
+}
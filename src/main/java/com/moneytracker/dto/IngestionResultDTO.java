@@ -0,0 +1,14 @@
+package com.moneytracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionResultDTO {
+    private Integer inserted;
+    private Integer skipped; // already imported earlier
+    private Integer failed;  // could not be parsed
+}
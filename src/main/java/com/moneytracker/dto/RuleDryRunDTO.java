@@ -0,0 +1,33 @@
+package com.moneytracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RuleDryRunDTO {
+    private Long ruleSetId;
+    private Long version;
+    private Integer sampleCount;
+    private Integer matchedCount;      // samples for which some rule extracted an amount
+    private Double matchRate;
+    private Integer expectedCount;     // samples with an expected amount
+    private Integer correctCount;      // ... where the extracted amount equals it
+    private Double candidateSelectionMicros;
+    private List<RuleStats> rules;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RuleStats {
+        private String name;
+        private Integer candidates;    // samples whose sender or subject selected the rule
+        private Integer matches;       // samples where the rule produced the amount
+        private Double totalMicros;
+        private Double avgMicros;
+    }
+}
@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.Map;
 
 @Data
@@ -15,4 +16,6 @@ public class SpendingSummaryDTO {
     private Map<String, BigDecimal> categoryBreakdown;
     private Map<String, BigDecimal> paymentMethodBreakdown;
     private Integer transactionCount;
+    private LocalDate startDate;
+    private LocalDate endDate;
 }
@@ -0,0 +1,18 @@
+package com.moneytracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionPageDTO {
+    private List<TransactionDTO> items;
+
+    // Opaque keyset cursor for the next page, null on the last page
+    private String nextCursor;
+    private Boolean hasMore;
+}
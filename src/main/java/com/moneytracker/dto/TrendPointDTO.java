@@ -0,0 +1,18 @@
+package com.moneytracker.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendPointDTO {
+    private LocalDate periodStart;
+    private LocalDate periodEnd;
+    private BigDecimal totalAmount;
+    private Integer transactionCount;
+}
@@ -0,0 +1,10 @@
+package com.moneytracker.event;
+
+import java.math.BigDecimal;
+
+/**
+ * Published inside the writing transaction when a spend delta moves a budget across its
+ * alert threshold, so the alert can be sent once that transaction has committed.
+ */
+public record BudgetThresholdCrossedEvent(Long budgetId, BigDecimal spent) {
+}
@@ -0,0 +1,8 @@
+package com.moneytracker.event;
+
+/**
+ * Published inside the writing transaction when a category's name changes, so data keyed
+ * by the old name can be rebuilt.
+ */
+public record CategoryRenamedEvent(Long userId, Long categoryId, String oldName, String newName) {
+}
@@ -0,0 +1,10 @@
+package com.moneytracker.event;
+
+import java.util.List;
+
+/**
+ * Published inside the writing transaction whenever a user's transactions are
+ * created, updated or deleted, so derived totals can be adjusted incrementally.
+ */
+public record SpendingChangedEvent(Long userId, List<SpendingDelta> deltas) {
+}
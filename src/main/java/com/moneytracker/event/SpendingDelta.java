@@ -0,0 +1,38 @@
+package com.moneytracker.event;
+
+import com.moneytracker.model.PaymentMethod;
+import com.moneytracker.model.Transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Signed change to spending caused by a transaction being added (+) or removed (-).
+ * An update is expressed as the removal of the old values plus the addition of the new ones.
+ */
+public record SpendingDelta(Long categoryId,
+                            String categoryName,
+                            PaymentMethod paymentMethod,
+                            LocalDate date,
+                            BigDecimal amount,
+                            int count) {
+
+    public static SpendingDelta added(Transaction transaction) {
+        return of(transaction, transaction.getAmount(), 1);
+    }
+
+    public static SpendingDelta removed(Transaction transaction) {
+        return of(transaction, transaction.getAmount().negate(), -1);
+    }
+
+    private static SpendingDelta of(Transaction transaction, BigDecimal amount, int count) {
+        return new SpendingDelta(
+                transaction.getCategory().getId(),
+                transaction.getCategory().getName(),
+                transaction.getPaymentMethod(),
+                transaction.getTransactionDate(),
+                amount,
+                count
+        );
+    }
+}
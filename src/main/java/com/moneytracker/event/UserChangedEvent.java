@@ -0,0 +1,7 @@
+package com.moneytracker.event;
+
+/**
+ * Published whenever a user's settings or status change, so cached copies can be dropped.
+ */
+public record UserChangedEvent(Long userId, String username) {
+}
@@ -0,0 +1,41 @@
+package com.moneytracker.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user whose monthly analytics failed inside a batch partition.
+ * The partition's checkpoint moves past the user, so the failure is kept here and retried
+ * whenever the partition is claimed again, until it succeeds or runs out of attempts.
+ */
+@Entity
+@Table(name = "analytics_batch_failures",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"partition_id", "user_id"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsBatchFailure {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "partition_id", nullable = false)
+    private Long partitionId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private Integer attempts = 1;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "failed_at")
+    private LocalDateTime failedAt;
+}
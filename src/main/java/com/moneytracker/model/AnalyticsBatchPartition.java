@@ -0,0 +1,58 @@
+package com.moneytracker.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One user id range [fromUserId, toUserId) of a monthly analytics run.
+ * Nodes claim partitions with SKIP LOCKED and checkpoint lastUserId as they go,
+ * so a crashed run resumes where it stopped. Every claim gets a new claimToken that each
+ * checkpoint must present, so a stalled worker cannot write after its partition was reclaimed.
+ */
+@Entity
+@Table(name = "analytics_batch_partitions",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"year_month_val", "from_user_id"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsBatchPartition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "year_month_val", nullable = false)
+    private String yearMonth; // Format: "2026-01"
+
+    @Column(name = "from_user_id", nullable = false)
+    private Long fromUserId;
+
+    @Column(name = "to_user_id", nullable = false)
+    private Long toUserId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private BatchPartitionStatus status = BatchPartitionStatus.PENDING;
+
+    @Column(name = "last_user_id")
+    private Long lastUserId; // checkpoint: last user whose analytics were written
+
+    @Column(name = "users_processed")
+    private Integer usersProcessed = 0;
+
+    @Column(name = "claimed_by")
+    private String claimedBy;
+
+    @Column(name = "claim_token", length = 36)
+    private String claimToken; // fences checkpoints to the current claim, see recordProgress
+
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt; // lease start, renewed on every checkpoint
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,7 @@
+package com.moneytracker.model;
+
+public enum BatchPartitionStatus {
+    PENDING,
+    RUNNING,
+    DONE
+}
@@ -7,6 +7,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -15,6 +16,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "budgets")
+@DynamicUpdate // spent_amount is maintained by atomic UPDATEs; entity flushes must not overwrite it
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -54,6 +56,10 @@ public class Budget {
     @Column(name = "is_active")
     private Boolean isActive = true;
     
+    // Running spend ledger for the budget period; null until it has been seeded
+    @Column(name = "spent_amount", precision = 10, scale = 2)
+    private BigDecimal spentAmount;
+    
     @Column(name = "last_alert_sent")
     private LocalDateTime lastAlertSent;
     
@@ -0,0 +1,13 @@
+package com.moneytracker.model;
+
+public enum EmailParsingJobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED,
+    REJECTED;
+
+    public boolean isActive() {
+        return this == QUEUED || this == RUNNING;
+    }
+}
@@ -0,0 +1,44 @@
+package com.moneytracker.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One merchant/bank rule of a rule set. Rules are tried in position order.
+ */
+@Entity
+@Table(name = "email_parsing_rules",
+       indexes = @Index(name = "idx_email_parsing_rules_set_position", columnList = "rule_set_id, position"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailParsingRule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "rule_set_id", nullable = false)
+    private EmailRuleSet ruleSet;
+
+    @Column(nullable = false)
+    private Integer position;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(name = "sender_keywords")
+    private String senderKeywords; // "|"-separated, e.g. "hdfc|icici"
+
+    @Column(name = "subject_pattern", columnDefinition = "TEXT")
+    private String subjectPattern; // regex, found anywhere in the subject
+
+    @Column(name = "amount_pattern", nullable = false, columnDefinition = "TEXT")
+    private String amountPattern; // regex with one group, or the {amount} placeholder
+
+    @Column(nullable = false)
+    private String category;
+}
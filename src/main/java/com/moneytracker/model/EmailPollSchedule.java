@@ -0,0 +1,54 @@
+package com.moneytracker.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * When a user's mailbox is next polled and how often. The interval adapts to how much
+ * transactional mail the mailbox receives and grows while it keeps failing. A node claims
+ * a due row for the length of a lease, so each mailbox is polled by one node at a time.
+ * While a node holds a live IDLE lease on the mailbox, it is not polled at all.
+ */
+@Entity
+@Table(name = "email_poll_schedules",
+       indexes = @Index(name = "idx_email_poll_schedules_next_poll", columnList = "next_poll_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailPollSchedule {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "next_poll_at", nullable = false)
+    private LocalDateTime nextPollAt;
+
+    @Column(name = "interval_seconds", nullable = false)
+    private Long intervalSeconds;
+
+    @Column(name = "consecutive_failures", nullable = false)
+    private Integer consecutiveFailures = 0;
+
+    @Column(name = "last_polled_at")
+    private LocalDateTime lastPolledAt;
+
+    @Column(name = "last_transactions_added")
+    private Integer lastTransactionsAdded;
+
+    @Column(name = "claimed_by")
+    private String claimedBy;
+
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    @Column(name = "idle_owner")
+    private String idleOwner;
+
+    @Column(name = "idle_lease_until")
+    private LocalDateTime idleLeaseUntil;
+}
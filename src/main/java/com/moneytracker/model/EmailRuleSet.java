@@ -0,0 +1,42 @@
+package com.moneytracker.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A versioned, immutable set of email parsing rules. At most one set is active at a time
+ * (uk_email_rule_sets_single_active in schema.sql); changing rules means creating a new
+ * version and activating it.
+ */
+@Entity
+@Table(name = "email_rule_sets")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailRuleSet {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private Long version;
+
+    @Column(columnDefinition = "TEXT")
+    private String description;
+
+    @Column(name = "is_active")
+    private Boolean isActive = false;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "activated_at")
+    private LocalDateTime activatedAt;
+}
@@ -0,0 +1,40 @@
+package com.moneytracker.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Stored example email used to dry-run rule sets before activating them.
+ */
+@Entity
+@Table(name = "email_sample_messages")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailSampleMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String sender;
+
+    private String subject;
+
+    @Column(columnDefinition = "TEXT")
+    private String body;
+
+    @Column(name = "expected_amount", precision = 10, scale = 2)
+    private BigDecimal expectedAmount; // null if the message should not produce a transaction
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
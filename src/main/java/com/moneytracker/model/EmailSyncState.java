@@ -0,0 +1,41 @@
+package com.moneytracker.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * How far a user's mailbox folder has been synced. UIDs are only comparable while the
+ * folder's UIDVALIDITY stays the same; when it changes the folder is synced afresh.
+ */
+@Entity
+@Table(name = "email_sync_states",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "folder_name"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailSyncState {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "folder_name", nullable = false)
+    private String folderName;
+
+    @Column(name = "uid_validity", nullable = false)
+    private Long uidValidity;
+
+    @Column(name = "last_uid", nullable = false)
+    private Long lastUid = 0L; // highest UID already looked at
+
+    @Column(name = "last_synced_at")
+    private LocalDateTime lastSyncedAt;
+}
@@ -5,14 +5,17 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.util.Map;
 
 @Entity
 @Table(name = "monthly_analytics", 
-       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "year_month"}))
+       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "year_month_val"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -47,11 +50,13 @@ public class MonthlyAnalytics {
     @Column(name = "avg_transaction_amount", precision = 10, scale = 2)
     private BigDecimal avgTransactionAmount = BigDecimal.ZERO;
     
-    @Column(columnDefinition = "JSON")
-    private String categoryBreakdown; // JSON string of category-wise spending
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
+    private Map<String, BigDecimal> categoryBreakdown; // category name -> amount spent
     
-    @Column(columnDefinition = "JSON")
-    private String paymentMethodBreakdown; // JSON string of payment method breakdown
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
+    private Map<String, BigDecimal> paymentMethodBreakdown; // payment method -> amount spent
     
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
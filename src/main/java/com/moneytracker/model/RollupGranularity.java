@@ -0,0 +1,53 @@
+package com.moneytracker.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Bucket sizes of the spending rollups. Weeks start on Monday (ISO), like PostgreSQL's date_trunc.
+ */
+public enum RollupGranularity {
+    DAY("day"),
+    WEEK("week"),
+    MONTH("month"),
+    YEAR("year");
+
+    private final String sqlUnit;
+
+    RollupGranularity(String sqlUnit) {
+        this.sqlUnit = sqlUnit;
+    }
+
+    // Unit name understood by date_trunc
+    public String getSqlUnit() {
+        return sqlUnit;
+    }
+
+    public LocalDate periodStart(LocalDate date) {
+        return switch (this) {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+            case YEAR -> date.withDayOfYear(1);
+        };
+    }
+
+    public LocalDate nextPeriodStart(LocalDate periodStart) {
+        return switch (this) {
+            case DAY -> periodStart.plusDays(1);
+            case WEEK -> periodStart.plusWeeks(1);
+            case MONTH -> periodStart.plusMonths(1);
+            case YEAR -> periodStart.plusYears(1);
+        };
+    }
+
+    // Next smaller bucket that tiles this one exactly; null for DAY
+    public RollupGranularity finer() {
+        return switch (this) {
+            case DAY -> null;
+            case WEEK, MONTH -> DAY;
+            case YEAR -> MONTH;
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package com.moneytracker.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Pre-aggregated spending of one user per bucket, category and payment method.
+ * Written only through SpendingRollupService (JDBC upserts), so ids are plain columns.
+ */
+@Entity
+@Table(name = "spending_rollups",
+       uniqueConstraints = @UniqueConstraint(
+               name = "uk_spending_rollups_bucket",
+               columnNames = {"user_id", "granularity", "period_start", "category_id", "payment_method"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpendingRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RollupGranularity granularity;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_method", nullable = false)
+    private PaymentMethod paymentMethod;
+
+    @Column(name = "total_amount", nullable = false, precision = 12, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    @Column(name = "transaction_count", nullable = false)
+    private Integer transactionCount = 0;
+}
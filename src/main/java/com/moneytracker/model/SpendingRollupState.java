@@ -0,0 +1,26 @@
+package com.moneytracker.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marks a user whose rollups have been built; until then they are rebuilt from transactions on first read.
+ */
+@Entity
+@Table(name = "spending_rollup_state")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpendingRollupState {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "built_at", nullable = false)
+    private LocalDateTime builtAt;
+}
@@ -15,7 +15,11 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions",
+       indexes = {
+               @Index(name = "idx_transactions_user_date_id", columnList = "user_id, transaction_date, id"),
+               @Index(name = "idx_transactions_user_category_date_id", columnList = "user_id, category_id, transaction_date, id")
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -67,7 +71,7 @@ public class Transaction {
     private TransactionSource source = TransactionSource.MANUAL; // MANUAL, EMAIL_PARSED, SMS_PARSED, CSV_IMPORT
     
     @Column(name = "source_reference")
-    private String sourceReference; // Email ID, SMS ID, or CSV file name
+    private String sourceReference; // Email Message-ID, SMS ID, or CSV row key; unique per user and source (schema.sql)
     
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
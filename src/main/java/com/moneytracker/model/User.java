@@ -52,6 +52,10 @@ public class User {
     
     @Column(name = "is_active")
     private Boolean isActive = true;
+
+    // Bumped whenever the account is deactivated or its roles change; tokens issued with an older value stop working
+    @Column(name = "token_version", nullable = false, columnDefinition = "bigint default 0")
+    private Long tokenVersion = 0L;
     
     @Column(name = "email_verified")
     private Boolean emailVerified = false;
@@ -71,6 +75,10 @@ public class User {
     
     @Column(name = "email_imap_password")
     private String emailImapPassword; // Should be encrypted
+
+    // Keep an IMAP IDLE connection open instead of relying on scheduled polling
+    @Column(name = "email_push_enabled")
+    private Boolean emailPushEnabled = false;
     
     // Notification preferences
     @Column(name = "email_notifications_enabled")
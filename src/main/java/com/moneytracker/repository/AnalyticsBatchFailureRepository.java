@@ -0,0 +1,38 @@
+package com.moneytracker.repository;
+
+import com.moneytracker.model.AnalyticsBatchFailure;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AnalyticsBatchFailureRepository extends JpaRepository<AnalyticsBatchFailure, Long> {
+
+    // First failure inserts the row, later ones count another attempt
+    @Modifying
+    @Query(value = "INSERT INTO analytics_batch_failures (partition_id, user_id, attempts, last_error, failed_at) " +
+                   "VALUES (:partitionId, :userId, 1, :error, :now) " +
+                   "ON CONFLICT (partition_id, user_id) DO UPDATE SET " +
+                   "attempts = analytics_batch_failures.attempts + 1, " +
+                   "last_error = EXCLUDED.last_error, failed_at = EXCLUDED.failed_at", nativeQuery = true)
+    int recordFailure(@Param("partitionId") Long partitionId,
+                      @Param("userId") Long userId,
+                      @Param("error") String error,
+                      @Param("now") LocalDateTime now);
+
+    @Query("SELECT f.userId FROM AnalyticsBatchFailure f " +
+           "WHERE f.partitionId = :partitionId AND f.attempts < :maxAttempts ORDER BY f.userId")
+    List<Long> findRetryableUserIds(@Param("partitionId") Long partitionId,
+                                    @Param("maxAttempts") int maxAttempts);
+
+    @Modifying
+    @Query("DELETE FROM AnalyticsBatchFailure f WHERE f.partitionId = :partitionId AND f.userId IN :userIds")
+    int deleteByPartitionIdAndUserIds(@Param("partitionId") Long partitionId,
+                                      @Param("userIds") Collection<Long> userIds);
+}
@@ -0,0 +1,53 @@
+package com.moneytracker.repository;
+
+import com.moneytracker.model.AnalyticsBatchPartition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AnalyticsBatchPartitionRepository extends JpaRepository<AnalyticsBatchPartition, Long> {
+
+    // Idempotent planning: every node computes the same boundaries, so concurrent planners agree
+    @Modifying
+    @Query(value = "INSERT INTO analytics_batch_partitions " +
+                   "(year_month_val, from_user_id, to_user_id, status, users_processed) " +
+                   "VALUES (:yearMonth, :fromUserId, :toUserId, 'PENDING', 0) " +
+                   "ON CONFLICT (year_month_val, from_user_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("yearMonth") String yearMonth,
+                       @Param("fromUserId") Long fromUserId,
+                       @Param("toUserId") Long toUserId);
+
+    // Next pending partition, or one whose lease has expired; rows locked by another node are skipped
+    @Query(value = "SELECT * FROM analytics_batch_partitions WHERE year_month_val = :yearMonth " +
+                   "AND (status = 'PENDING' OR (status = 'RUNNING' AND claimed_at < :staleBefore)) " +
+                   "ORDER BY from_user_id LIMIT 1 FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<AnalyticsBatchPartition> lockNextClaimable(@Param("yearMonth") String yearMonth,
+                                                        @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Query("SELECT DISTINCT p.yearMonth FROM AnalyticsBatchPartition p " +
+           "WHERE p.status <> com.moneytracker.model.BatchPartitionStatus.DONE")
+    List<String> findUnfinishedYearMonths();
+
+    // Checkpoint and lease renewal in one statement; 0 rows means the partition was claimed again since
+    @Modifying
+    @Query("UPDATE AnalyticsBatchPartition p SET p.lastUserId = :lastUserId, " +
+           "p.usersProcessed = p.usersProcessed + :processed, p.claimedAt = :now " +
+           "WHERE p.id = :id AND p.claimToken = :claimToken")
+    int recordProgress(@Param("id") Long id,
+                       @Param("claimToken") String claimToken,
+                       @Param("lastUserId") Long lastUserId,
+                       @Param("processed") int processed,
+                       @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE AnalyticsBatchPartition p SET p.status = com.moneytracker.model.BatchPartitionStatus.DONE, " +
+           "p.completedAt = :now WHERE p.id = :id AND p.claimToken = :claimToken")
+    int markDone(@Param("id") Long id, @Param("claimToken") String claimToken, @Param("now") LocalDateTime now);
+}
@@ -2,18 +2,28 @@ package com.moneytracker.repository;
 
 import com.moneytracker.model.Budget;
 import com.moneytracker.model.BudgetPeriodType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface BudgetRepository extends JpaRepository<Budget, Long> {
     
     List<Budget> findByUserIdAndIsActiveTrue(Long userId);
+
+    // Active budgets of one user with their categories in the same select
+    @Query("SELECT b FROM Budget b LEFT JOIN FETCH b.category " +
+           "WHERE b.user.id = :userId AND b.isActive = true ORDER BY b.id")
+    List<Budget> findActiveBudgetsWithCategory(@Param("userId") Long userId);
     
     List<Budget> findByUserIdAndCategoryIdAndIsActiveTrue(Long userId, Long categoryId);
     
@@ -26,4 +36,50 @@ public interface BudgetRepository extends JpaRepository<Budget, Long> {
     @Query("SELECT b FROM Budget b WHERE b.isActive = true " +
            "AND :currentDate BETWEEN b.startDate AND b.endDate")
     List<Budget> findAllActiveBudgets(@Param("currentDate") LocalDate currentDate);
+
+    // Next chunk of active budgets by id, with owner and category loaded up front
+    @Query("SELECT b FROM Budget b JOIN FETCH b.user LEFT JOIN FETCH b.category " +
+           "WHERE b.isActive = true AND :currentDate BETWEEN b.startDate AND b.endDate " +
+           "AND b.id > :afterId ORDER BY b.id")
+    List<Budget> findActiveBudgetsAfter(@Param("currentDate") LocalDate currentDate,
+                                        @Param("afterId") Long afterId,
+                                        Pageable pageable);
+
+    // Spend for many budgets in one grouped query: [budgetId, sum] (sum is null when nothing was spent)
+    @Query("SELECT b.id, SUM(t.amount) FROM Budget b " +
+           "LEFT JOIN Transaction t ON t.user.id = b.user.id " +
+           "AND t.transactionDate BETWEEN b.startDate AND b.endDate " +
+           "AND (b.category.id IS NULL OR t.category.id = b.category.id) " +
+           "WHERE b.id IN :budgetIds GROUP BY b.id")
+    List<Object[]> sumSpendingByBudget(@Param("budgetIds") Collection<Long> budgetIds);
+
+    @Query("SELECT b FROM Budget b LEFT JOIN FETCH b.category " +
+           "WHERE b.user.id = :userId AND b.isActive = true AND b.spentAmount IS NOT NULL")
+    List<Budget> findLedgerBudgetsForUser(@Param("userId") Long userId);
+
+    // Ledger writes are atomic in the database so concurrent transactions never lose a delta
+
+    // Returns the ledger after the delta, as seen under the row lock the UPDATE takes
+    @Query(value = "UPDATE budgets SET spent_amount = spent_amount + :delta WHERE id = :budgetId " +
+                   "RETURNING spent_amount", nativeQuery = true)
+    BigDecimal incrementSpentAmount(@Param("budgetId") Long budgetId, @Param("delta") BigDecimal delta);
+
+    @Modifying
+    @Query("UPDATE Budget b SET b.spentAmount = :actual WHERE b.id = :budgetId AND b.spentAmount IS NULL")
+    int seedSpentAmount(@Param("budgetId") Long budgetId, @Param("actual") BigDecimal actual);
+
+    // Only repairs if nobody moved the ledger since it was observed; otherwise the next run will
+    @Modifying
+    @Query("UPDATE Budget b SET b.spentAmount = :actual WHERE b.id = :budgetId AND b.spentAmount = :observed")
+    int repairSpentAmount(@Param("budgetId") Long budgetId,
+                          @Param("observed") BigDecimal observed,
+                          @Param("actual") BigDecimal actual);
+
+    // At most one alert per budget a day, even when several nodes see the same crossing
+    @Modifying
+    @Query("UPDATE Budget b SET b.lastAlertSent = :now WHERE b.id = :budgetId " +
+           "AND (b.lastAlertSent IS NULL OR b.lastAlertSent < :sentBefore)")
+    int claimAlert(@Param("budgetId") Long budgetId,
+                   @Param("now") LocalDateTime now,
+                   @Param("sentBefore") LocalDateTime sentBefore);
 }
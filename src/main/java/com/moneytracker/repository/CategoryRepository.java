@@ -4,6 +4,7 @@ import com.moneytracker.model.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,4 +15,5 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     Optional<Category> findByNameAndUserId(String name, Long userId);
     boolean existsByNameAndUserId(String name, Long userId);
     Optional<Category> findByIdAndUserId(Long id, Long userId);
+    List<Category> findByUserIdAndNameIn(Long userId, Collection<String> names);
 }
@@ -0,0 +1,13 @@
+package com.moneytracker.repository;
+
+import com.moneytracker.model.EmailParsingRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EmailParsingRuleRepository extends JpaRepository<EmailParsingRule, Long> {
+
+    List<EmailParsingRule> findByRuleSetIdOrderByPosition(Long ruleSetId);
+}
@@ -0,0 +1,61 @@
+package com.moneytracker.repository;
+
+import com.moneytracker.model.EmailPollSchedule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailPollScheduleRepository extends JpaRepository<EmailPollSchedule, Long> {
+
+    // Newly enabled users get a first poll at a random point within one interval, so they don't all fire at once
+    @Modifying
+    @Query(value = "INSERT INTO email_poll_schedules (user_id, next_poll_at, interval_seconds, consecutive_failures) " +
+                   "SELECT u.id, CAST(:now AS timestamp) + random() * make_interval(secs => :intervalSeconds), " +
+                   ":intervalSeconds, 0 FROM users u " +
+                   "WHERE u.email_parsing_enabled = true AND u.is_active = true " +
+                   "ON CONFLICT (user_id) DO NOTHING", nativeQuery = true)
+    int insertMissing(@Param("now") LocalDateTime now, @Param("intervalSeconds") long intervalSeconds);
+
+    // Due mailboxes of enabled users that nobody holds a live poll claim or IDLE lease on; rows locked by another node are skipped
+    @Query(value = "SELECT s.* FROM email_poll_schedules s JOIN users u ON u.id = s.user_id " +
+                   "WHERE s.next_poll_at <= :now AND (s.claimed_until IS NULL OR s.claimed_until < :now) " +
+                   "AND (s.idle_lease_until IS NULL OR s.idle_lease_until < :now) " +
+                   "AND u.email_parsing_enabled = true AND u.is_active = true " +
+                   "ORDER BY s.next_poll_at LIMIT :limit FOR UPDATE OF s SKIP LOCKED", nativeQuery = true)
+    List<EmailPollSchedule> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Records the outcome and releases the claim; 0 rows means the lease expired and another node took over
+    @Modifying
+    @Query("UPDATE EmailPollSchedule s SET s.nextPollAt = :nextPollAt, s.intervalSeconds = :intervalSeconds, " +
+           "s.consecutiveFailures = :failures, s.lastPolledAt = :polledAt, s.lastTransactionsAdded = :added, " +
+           "s.claimedBy = null, s.claimedUntil = null " +
+           "WHERE s.userId = :userId AND s.claimedBy = :nodeId")
+    int reschedule(@Param("userId") Long userId,
+                   @Param("nodeId") String nodeId,
+                   @Param("nextPollAt") LocalDateTime nextPollAt,
+                   @Param("intervalSeconds") long intervalSeconds,
+                   @Param("failures") int failures,
+                   @Param("polledAt") LocalDateTime polledAt,
+                   @Param("added") Integer added);
+
+    // Push-enabled mailboxes this node already listens to, then ones with no live IDLE lease elsewhere
+    @Query(value = "SELECT s.* FROM email_poll_schedules s JOIN users u ON u.id = s.user_id " +
+                   "WHERE u.email_push_enabled = true AND u.email_parsing_enabled = true AND u.is_active = true " +
+                   "AND (s.idle_owner = :nodeId OR s.idle_lease_until IS NULL OR s.idle_lease_until < :now) " +
+                   "ORDER BY COALESCE(s.idle_owner = :nodeId, false) DESC, s.user_id LIMIT :limit " +
+                   "FOR UPDATE OF s SKIP LOCKED", nativeQuery = true)
+    List<EmailPollSchedule> lockIdleCandidates(@Param("nodeId") String nodeId,
+                                               @Param("now") LocalDateTime now,
+                                               @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE EmailPollSchedule s SET s.idleOwner = null, s.idleLeaseUntil = null " +
+           "WHERE s.userId = :userId AND s.idleOwner = :nodeId")
+    int releaseIdleLease(@Param("userId") Long userId, @Param("nodeId") String nodeId);
+}
@@ -0,0 +1,32 @@
+package com.moneytracker.repository;
+
+import com.moneytracker.model.EmailRuleSet;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EmailRuleSetRepository extends JpaRepository<EmailRuleSet, Long> {
+
+    Optional<EmailRuleSet> findFirstByIsActiveTrue();
+
+    List<EmailRuleSet> findAllByOrderByVersionDesc();
+
+    @Query("SELECT MAX(r.version) FROM EmailRuleSet r")
+    Long findMaxVersion();
+
+    // Serializes rule set writers (version numbering, activation) for the rest of the transaction;
+    // plain reads are not blocked
+    @Modifying
+    @Query(value = "LOCK TABLE email_rule_sets IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockForWrite();
+
+    @Modifying
+    @Query("UPDATE EmailRuleSet r SET r.isActive = false WHERE r.isActive = true AND r.id <> :id")
+    int deactivateAllExcept(@Param("id") Long id);
+}
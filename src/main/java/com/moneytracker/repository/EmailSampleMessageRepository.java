@@ -0,0 +1,9 @@
+package com.moneytracker.repository;
+
+import com.moneytracker.model.EmailSampleMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface EmailSampleMessageRepository extends JpaRepository<EmailSampleMessage, Long> {
+}
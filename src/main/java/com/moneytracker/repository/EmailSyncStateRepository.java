@@ -0,0 +1,13 @@
+package com.moneytracker.repository;
+
+import com.moneytracker.model.EmailSyncState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface EmailSyncStateRepository extends JpaRepository<EmailSyncState, Long> {
+
+    Optional<EmailSyncState> findByUserIdAndFolderName(Long userId, String folderName);
+}
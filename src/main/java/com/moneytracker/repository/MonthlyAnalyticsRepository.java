@@ -1,7 +1,12 @@
 package com.moneytracker.repository;
 
 import com.moneytracker.model.MonthlyAnalytics;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -15,4 +20,18 @@ public interface MonthlyAnalyticsRepository extends JpaRepository<MonthlyAnalyti
     List<MonthlyAnalytics> findByUserIdOrderByYearMonthDesc(Long userId);
     
     List<MonthlyAnalytics> findTop12ByUserIdOrderByYearMonthDesc(Long userId);
+
+    List<MonthlyAnalytics> findByUserIdOrderByYearMonthDesc(Long userId, Pageable pageable);
+
+    // Evaluated in the database against the GIN-indexed breakdown; predicate is a jsonpath such as $."Food" > 500
+    @Query(value = "SELECT * FROM monthly_analytics WHERE user_id = :userId " +
+                   "AND category_breakdown @@ CAST(:predicate AS jsonpath) " +
+                   "ORDER BY year_month_val DESC", nativeQuery = true)
+    List<MonthlyAnalytics> findByUserIdMatchingCategoryPredicate(@Param("userId") Long userId,
+                                                                 @Param("predicate") String predicate);
+
+    // Row lock for incremental updates, so concurrent writers apply their changes one after another
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM MonthlyAnalytics a WHERE a.user.id = :userId AND a.yearMonth = :yearMonth")
+    Optional<MonthlyAnalytics> findForUpdate(@Param("userId") Long userId, @Param("yearMonth") String yearMonth);
 }
@@ -0,0 +1,30 @@
+package com.moneytracker.repository;
+
+import com.moneytracker.model.PaymentMethod;
+import com.moneytracker.model.RollupGranularity;
+import com.moneytracker.model.SpendingRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SpendingRollupRepository extends JpaRepository<SpendingRollup, Long> {
+
+    // [periodStart, sum, count] of one granularity's buckets starting in the range; filters are optional
+    @Query("SELECT r.periodStart, SUM(r.totalAmount), SUM(r.transactionCount) FROM SpendingRollup r " +
+           "WHERE r.userId = :userId AND r.granularity = :granularity " +
+           "AND r.periodStart BETWEEN :fromStart AND :toStart " +
+           "AND (:categoryId IS NULL OR r.categoryId = :categoryId) " +
+           "AND (:paymentMethod IS NULL OR r.paymentMethod = :paymentMethod) " +
+           "GROUP BY r.periodStart")
+    List<Object[]> sumByPeriod(@Param("userId") Long userId,
+                               @Param("granularity") RollupGranularity granularity,
+                               @Param("fromStart") LocalDate fromStart,
+                               @Param("toStart") LocalDate toStart,
+                               @Param("categoryId") Long categoryId,
+                               @Param("paymentMethod") PaymentMethod paymentMethod);
+}
@@ -2,14 +2,21 @@ package com.moneytracker.repository;
 
 import com.moneytracker.model.PaymentMethod;
 import com.moneytracker.model.Transaction;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
@@ -59,4 +66,98 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     
     @Query("SELECT t.paymentMethod, SUM(t.amount) FROM Transaction t WHERE t.transactionDate BETWEEN :startDate AND :endDate GROUP BY t.paymentMethod")
     List<Object[]> getSpendingByPaymentMethod(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Single-pass summary source: one row per (category, payment method) with sum and count
+    @Query("SELECT t.category.name, t.paymentMethod, SUM(t.amount), COUNT(t) FROM Transaction t " +
+           "WHERE t.user.id = :userId AND t.transactionDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY t.category.name, t.paymentMethod")
+    List<Object[]> getUserSpendingByCategoryAndPaymentMethod(@Param("userId") Long userId,
+                                                             @Param("startDate") LocalDate startDate,
+                                                             @Param("endDate") LocalDate endDate);
+
+    // Same as above for several ranges at once, one row per (range, category, payment method);
+    // range_no is the 1-based position in startDates/endDates, parallel Postgres date array literals
+    // ('{2026-01-01,2026-03-01}'). Each range is aggregated on its own index range scan, so only
+    // rows inside the ranges are read, and a row inside several ranges counts in each of them.
+    @Query(value = "SELECT r.range_no, s.name, s.payment_method, s.amount, s.row_count " +
+                   "FROM unnest(CAST(:startDates AS date[]), CAST(:endDates AS date[])) " +
+                   "WITH ORDINALITY AS r(start_date, end_date, range_no) " +
+                   "CROSS JOIN LATERAL (SELECT c.name, t.payment_method, SUM(t.amount) AS amount, COUNT(*) AS row_count " +
+                   "FROM transactions t JOIN categories c ON c.id = t.category_id " +
+                   "WHERE t.user_id = :userId AND t.transaction_date BETWEEN r.start_date AND r.end_date " +
+                   "GROUP BY c.name, t.payment_method) s", nativeQuery = true)
+    List<Object[]> getUserSpendingByRangeCategoryAndPaymentMethod(@Param("userId") Long userId,
+                                                                  @Param("startDates") String startDates,
+                                                                  @Param("endDates") String endDates);
+
+    // Keyset pagination on (transactionDate, id), newest first. Pass the last row of the
+    // previous page as the cursor; the first page starts from a cursor past any real row.
+
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.category WHERE t.user.id = :userId " +
+           "AND (t.transactionDate < :cursorDate OR (t.transactionDate = :cursorDate AND t.id < :cursorId)) " +
+           "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> findUserTransactionsPage(@Param("userId") Long userId,
+                                               @Param("cursorDate") LocalDate cursorDate,
+                                               @Param("cursorId") Long cursorId,
+                                               Pageable pageable);
+
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.category WHERE t.user.id = :userId " +
+           "AND t.transactionDate BETWEEN :startDate AND :endDate " +
+           "AND (t.transactionDate < :cursorDate OR (t.transactionDate = :cursorDate AND t.id < :cursorId)) " +
+           "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> findUserTransactionsInDateRangePage(@Param("userId") Long userId,
+                                                          @Param("startDate") LocalDate startDate,
+                                                          @Param("endDate") LocalDate endDate,
+                                                          @Param("cursorDate") LocalDate cursorDate,
+                                                          @Param("cursorId") Long cursorId,
+                                                          Pageable pageable);
+
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.category WHERE t.user.id = :userId " +
+           "AND t.category.id = :categoryId " +
+           "AND (t.transactionDate < :cursorDate OR (t.transactionDate = :cursorDate AND t.id < :cursorId)) " +
+           "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> findUserTransactionsByCategoryPage(@Param("userId") Long userId,
+                                                         @Param("categoryId") Long categoryId,
+                                                         @Param("cursorDate") LocalDate cursorDate,
+                                                         @Param("cursorId") Long cursorId,
+                                                         Pageable pageable);
+
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.category WHERE t.user.id = :userId " +
+           "AND t.paymentMethod = :paymentMethod " +
+           "AND (t.transactionDate < :cursorDate OR (t.transactionDate = :cursorDate AND t.id < :cursorId)) " +
+           "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> findUserTransactionsByPaymentMethodPage(@Param("userId") Long userId,
+                                                              @Param("paymentMethod") PaymentMethod paymentMethod,
+                                                              @Param("cursorDate") LocalDate cursorDate,
+                                                              @Param("cursorId") Long cursorId,
+                                                              Pageable pageable);
+
+    // Cursor-backed streams; must be consumed inside a transaction
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.category WHERE t.user.id = :userId " +
+           "ORDER BY t.transactionDate DESC, t.id DESC")
+    Stream<Transaction> streamUserTransactions(@Param("userId") Long userId);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.category WHERE t.user.id = :userId " +
+           "AND t.transactionDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY t.transactionDate DESC, t.id DESC")
+    Stream<Transaction> streamUserTransactionsInDateRange(@Param("userId") Long userId,
+                                                          @Param("startDate") LocalDate startDate,
+                                                          @Param("endDate") LocalDate endDate);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.category WHERE t.user.id = :userId " +
+           "AND t.category.id = :categoryId " +
+           "ORDER BY t.transactionDate DESC, t.id DESC")
+    Stream<Transaction> streamUserTransactionsByCategory(@Param("userId") Long userId,
+                                                         @Param("categoryId") Long categoryId);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.category WHERE t.user.id = :userId " +
+           "AND t.paymentMethod = :paymentMethod " +
+           "ORDER BY t.transactionDate DESC, t.id DESC")
+    Stream<Transaction> streamUserTransactionsByPaymentMethod(@Param("userId") Long userId,
+                                                              @Param("paymentMethod") PaymentMethod paymentMethod);
 }
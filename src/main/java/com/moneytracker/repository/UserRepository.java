@@ -2,8 +2,11 @@ package com.moneytracker.repository;
 
 import com.moneytracker.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +15,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     Boolean existsByUsername(String username);
     Boolean existsByEmail(String email);
+
+    @Query("SELECT MAX(u.id) FROM User u")
+    Long findMaxUserId();
+
+    @Query("SELECT u.id FROM User u WHERE u.id >= :fromId AND u.id < :toId AND u.isActive = true ORDER BY u.id")
+    List<Long> findActiveUserIdsInRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
 }
@@ -0,0 +1,97 @@
+package com.moneytracker.security;
+
+import com.moneytracker.model.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal stored in the security context for every authenticated request.
+ * Carries the user id so controllers never have to look the user up by username.
+ * Built from JWT claims on the request path, or from the users table at login.
+ */
+public class AuthenticatedUser implements UserDetails {
+
+    private final Long id;
+    private final String username;
+    private final String password; // null when built from token claims
+    private final List<GrantedAuthority> authorities;
+    private final boolean active;
+    private final long tokenVersion;
+
+    public AuthenticatedUser(Long id, String username, String password,
+                             Collection<String> roles, boolean active, long tokenVersion) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.authorities = roles.stream()
+                .map(SimpleGrantedAuthority::new)
+                .map(GrantedAuthority.class::cast)
+                .toList();
+        this.active = active;
+        this.tokenVersion = tokenVersion;
+    }
+
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(
+                user.getId(),
+                user.getUsername(),
+                user.getPassword(),
+                user.getRoles(),
+                Boolean.TRUE.equals(user.getIsActive()),
+                user.getTokenVersion() != null ? user.getTokenVersion() : 0L
+        );
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public long getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public List<String> getRoles() {
+        return authorities.stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return active;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return active;
+    }
+}
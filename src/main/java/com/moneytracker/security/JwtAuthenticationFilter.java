@@ -1,5 +1,6 @@
 package com.moneytracker.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,6 +10,7 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -33,22 +35,32 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
 
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String username;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        jwt = authHeader.substring(7);
-        username = jwtUtil.extractUsername(jwt);
+        // Parsed and verified once; the claims are reused for everything below
+        final Claims claims = jwtUtil.parseToken(authHeader.substring(7));
+        final String username = claims != null ? claims.getSubject() : null;
 
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // Current account state, from the user details cache that every user change evicts.
+            // Older tokens carry only the username and authenticate as that account
+            UserDetails current = loadCurrentUser(username);
+            UserDetails userDetails = current;
 
-            if (jwtUtil.validateToken(jwt, userDetails)) {
+            AuthenticatedUser fromToken = jwtUtil.toPrincipal(claims);
+            if (fromToken != null) {
+                // Roles and status in the token hold only while its version matches the account's;
+                // deactivation and role changes bump the version
+                userDetails = current instanceof AuthenticatedUser account
+                        && account.getTokenVersion() == fromToken.getTokenVersion() ? fromToken : null;
+            }
+
+            if (userDetails != null && current.isEnabled() && userDetails.isEnabled()) {
 
                 UsernamePasswordAuthenticationToken authToken =
                         new UsernamePasswordAuthenticationToken(
@@ -64,4 +76,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    private UserDetails loadCurrentUser(String username) {
+        try {
+            return userDetailsService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
 }
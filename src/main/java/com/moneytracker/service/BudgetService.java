@@ -1,37 +1,71 @@
 package com.moneytracker.service;
 
 import com.moneytracker.dto.BudgetDTO;
+import com.moneytracker.event.BudgetThresholdCrossedEvent;
+import com.moneytracker.event.SpendingChangedEvent;
+import com.moneytracker.event.SpendingDelta;
 import com.moneytracker.exception.ResourceNotFoundException;
 import com.moneytracker.model.*;
 import com.moneytracker.repository.BudgetRepository;
-import com.moneytracker.repository.TransactionRepository;
 import com.moneytracker.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class BudgetService {
 
     private final BudgetRepository budgetRepository;
-    private final TransactionRepository transactionRepository;
     private final UserRepository userRepository;
     private final NotificationService notificationService;
     private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationEventPublisher eventPublisher;
 
+    @Value("${budget.evaluation.chunk-size:500}")
+    private int evaluationChunkSize;
+
+    /**
+     * Lists the user's active budgets with their current spending.
+     * Seeded budgets read their ledger; any still unseeded are summed together in one
+     * grouped query, so the number of queries does not grow with the number of budgets.
+     */
     @Transactional(readOnly = true)
     public List<BudgetDTO> getUserBudgets(Long userId) {
-        return budgetRepository.findByUserIdAndIsActiveTrue(userId).stream()
-                .map(this::convertToDTO)
+        List<Budget> budgets = budgetRepository.findActiveBudgetsWithCategory(userId);
+
+        List<Budget> unseeded = budgets.stream()
+                .filter(budget -> budget.getSpentAmount() == null)
+                .collect(Collectors.toList());
+        Map<Long, BigDecimal> spentByBudget = calculateSpentAmounts(unseeded);
+
+        return budgets.stream()
+                .map(budget -> convertToDTO(budget, budget.getSpentAmount() != null ?
+                        budget.getSpentAmount() : spentByBudget.get(budget.getId())))
                 .collect(Collectors.toList());
     }
 
@@ -45,7 +79,10 @@ public class BudgetService {
         budget.setIsActive(true);
 
         Budget saved = budgetRepository.save(budget);
-        return convertToDTO(saved);
+
+        // Seed the spend ledger; from here on transaction writes keep it current
+        saved.setSpentAmount(calculateSpentAmounts(List.of(saved)).get(saved.getId()));
+        return convertToDTO(saved, saved.getSpentAmount());
     }
 
     @Transactional
@@ -53,69 +90,193 @@ public class BudgetService {
         List<Budget> budgets = budgetRepository.findByUserIdAndIsActiveTrue(userId);
         LocalDate now = LocalDate.now();
 
+        List<Budget> current = budgets.stream()
+                .filter(budget -> !budget.getStartDate().isAfter(now) && !budget.getEndDate().isBefore(now))
+                .collect(Collectors.toList());
+        Map<Long, BigDecimal> spentByBudget = calculateSpentAmounts(current);
+
+        LocalDateTime claimedAt = LocalDateTime.now();
+        for (Budget budget : current) {
+            BigDecimal spent = spentByBudget.get(budget.getId());
+            double percentageUsed = percentageUsed(spent, budget);
+
+            if (percentageUsed >= budget.getAlertThreshold()) {
+                sendDailyAlert(budget, percentageUsed, spent, claimedAt);
+            }
+        }
+    }
+
+    /**
+     * Applies transaction writes to the running spend of every affected budget inside the
+     * writer's transaction. The ledger values before and after each delta come from the
+     * UPDATE itself, so concurrent writers and repeated events in one transaction each see
+     * their own crossing; alerts are only published here and sent after commit.
+     */
+    @EventListener
+    public void onSpendingChanged(SpendingChangedEvent event) {
+        List<Budget> budgets = budgetRepository.findLedgerBudgetsForUser(event.userId());
+
         for (Budget budget : budgets) {
-            if (budget.getStartDate().isAfter(now) || budget.getEndDate().isBefore(now)) {
+            BigDecimal delta = BigDecimal.ZERO;
+            for (SpendingDelta change : event.deltas()) {
+                if (appliesTo(budget, change)) {
+                    delta = delta.add(change.amount());
+                }
+            }
+            if (delta.signum() == 0) {
                 continue;
             }
 
-            BigDecimal spent = calculateSpentAmount(budget);
-            double percentageUsed = spent.divide(budget.getAmount(), 4, RoundingMode.HALF_UP)
-                    .multiply(BigDecimal.valueOf(100))
-                    .doubleValue();
-
-            if (percentageUsed >= budget.getAlertThreshold()) {
-                sendBudgetAlert(budget, percentageUsed, spent);
+            BigDecimal after = budgetRepository.incrementSpentAmount(budget.getId(), delta);
+            if (after == null) {
+                continue;
+            }
+            BigDecimal before = after.subtract(delta);
+            if (percentageUsed(before, budget) < budget.getAlertThreshold()
+                    && percentageUsed(after, budget) >= budget.getAlertThreshold()) {
+                eventPublisher.publishEvent(new BudgetThresholdCrossedEvent(budget.getId(), after));
             }
         }
     }
 
-    // Scheduled task to check all budgets daily
+    /**
+     * Sends a threshold alert once the write that caused it has committed, in its own short
+     * transaction. Rolled-back writes never alert, and the daily limit is claimed atomically.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onThresholdCrossed(BudgetThresholdCrossedEvent event) {
+        budgetRepository.findById(event.budgetId()).ifPresent(budget ->
+                sendDailyAlert(budget, percentageUsed(event.spent(), budget), event.spent(), LocalDateTime.now()));
+    }
+
+    private boolean appliesTo(Budget budget, SpendingDelta change) {
+        if (change.date().isBefore(budget.getStartDate()) || change.date().isAfter(budget.getEndDate())) {
+            return false;
+        }
+        return budget.getCategory() == null || budget.getCategory().getId().equals(change.categoryId());
+    }
+
+    /**
+     * Scheduled task to check all budgets daily.
+     * Walks active budgets in id-ordered chunks; each chunk is one transaction that
+     * loads the budgets, computes all their spend in a single grouped query and
+     * sends the alerts it produces. The same pass reconciles each budget's running
+     * spend ledger against the raw transactions and repairs any drift.
+     */
     @Scheduled(cron = "0 0 9 * * *") // Every day at 9 AM
     public void checkAllBudgetsDaily() {
-        List<Budget> activeBudgets = budgetRepository.findAllActiveBudgets(LocalDate.now());
+        LocalDate today = LocalDate.now();
+        Timer.Sample run = Timer.start(meterRegistry);
+        long startedAt = System.nanoTime();
 
-        for (Budget budget : activeBudgets) {
-            BigDecimal spent = calculateSpentAmount(budget);
-            double percentageUsed = spent.divide(budget.getAmount(), 4, RoundingMode.HALF_UP)
-                    .multiply(BigDecimal.valueOf(100))
-                    .doubleValue();
+        long lastBudgetId = 0L;
+        int evaluated = 0;
+        int alerts = 0;
+        int repaired = 0;
 
-            if (percentageUsed >= budget.getAlertThreshold() && shouldSendAlert(budget)) {
-                sendBudgetAlert(budget, percentageUsed, spent);
+        while (true) {
+            final long afterId = lastBudgetId;
+            ChunkResult chunk = transactionTemplate.execute(status -> evaluateBudgetChunk(today, afterId));
+            if (chunk == null || chunk.evaluated() == 0) {
+                break;
             }
+
+            lastBudgetId = chunk.lastBudgetId();
+            evaluated += chunk.evaluated();
+            alerts += chunk.alerts();
+            repaired += chunk.repaired();
+            meterRegistry.counter("budget.evaluation.budgets").increment(chunk.evaluated());
+            meterRegistry.counter("budget.evaluation.alerts").increment(chunk.alerts());
+            meterRegistry.counter("budget.ledger.repairs").increment(chunk.repaired());
+            log.info("Budget evaluation progress: {} budgets evaluated, {} alerts sent, {} ledgers repaired",
+                    evaluated, alerts, repaired);
         }
+
+        run.stop(meterRegistry.timer("budget.evaluation.duration"));
+        log.info("Budget evaluation finished: {} budgets, {} alerts, {} ledgers repaired in {} ms",
+                evaluated, alerts, repaired, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
     }
 
-    private BigDecimal calculateSpentAmount(Budget budget) {
-        if (budget.getCategory() == null) {
-            // Overall budget
-            return transactionRepository.getUserTotalSpendingInDateRange(
-                    budget.getUser().getId(),
-                    budget.getStartDate(),
-                    budget.getEndDate()
-            );
-        } else {
-            // Category-specific budget
-            return transactionRepository.findByUserIdAndCategoryId(
-                            budget.getUser().getId(),
-                            budget.getCategory().getId()
-                    ).stream()
-                    .filter(t -> !t.getTransactionDate().isBefore(budget.getStartDate()) &&
-                            !t.getTransactionDate().isAfter(budget.getEndDate()))
-                    .map(Transaction::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private ChunkResult evaluateBudgetChunk(LocalDate today, long afterId) {
+        List<Budget> budgets = budgetRepository.findActiveBudgetsAfter(
+                today, afterId, PageRequest.of(0, evaluationChunkSize));
+        if (budgets.isEmpty()) {
+            return new ChunkResult(0, 0, 0, afterId);
         }
+
+        Map<Long, BigDecimal> spentByBudget = calculateSpentAmounts(budgets);
+
+        int alerts = 0;
+        int repaired = 0;
+        LocalDateTime now = LocalDateTime.now();
+        for (Budget budget : budgets) {
+            BigDecimal spent = spentByBudget.get(budget.getId());
+            if (reconcileLedger(budget, spent)) {
+                repaired++;
+            }
+
+            double percentageUsed = percentageUsed(spent, budget);
+
+            if (percentageUsed >= budget.getAlertThreshold() && sendDailyAlert(budget, percentageUsed, spent, now)) {
+                alerts++;
+            }
+        }
+
+        return new ChunkResult(budgets.size(), alerts, repaired, budgets.get(budgets.size() - 1).getId());
     }
 
-    private boolean shouldSendAlert(Budget budget) {
-        if (budget.getLastAlertSent() == null) {
-            return true;
+    private boolean reconcileLedger(Budget budget, BigDecimal actual) {
+        BigDecimal ledger = budget.getSpentAmount();
+        if (ledger == null) {
+            return budgetRepository.seedSpentAmount(budget.getId(), actual) > 0;
+        }
+        if (ledger.compareTo(actual) == 0) {
+            return false;
         }
-        // Don't send more than one alert per day
-        return budget.getLastAlertSent().isBefore(LocalDateTime.now().minusDays(1));
+
+        log.warn("Budget {} ledger drifted: ledger={}, actual={}", budget.getId(), ledger, actual);
+        return budgetRepository.repairSpentAmount(budget.getId(), ledger, actual) > 0;
     }
 
-    private void sendBudgetAlert(Budget budget, double percentageUsed, BigDecimal spent) {
+    /**
+     * Spend for every given budget from one grouped query
+     */
+    private Map<Long, BigDecimal> calculateSpentAmounts(List<Budget> budgets) {
+        Map<Long, BigDecimal> spentByBudget = new HashMap<>();
+        if (budgets.isEmpty()) {
+            return spentByBudget;
+        }
+
+        List<Long> budgetIds = budgets.stream().map(Budget::getId).collect(Collectors.toList());
+        for (Object[] row : budgetRepository.sumSpendingByBudget(budgetIds)) {
+            BigDecimal spent = (BigDecimal) row[1];
+            spentByBudget.put((Long) row[0], spent != null ? spent : BigDecimal.ZERO);
+        }
+        budgetIds.forEach(id -> spentByBudget.putIfAbsent(id, BigDecimal.ZERO));
+        return spentByBudget;
+    }
+
+    private double percentageUsed(BigDecimal spent, Budget budget) {
+        return spent.divide(budget.getAmount(), 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100))
+                .doubleValue();
+    }
+
+    /**
+     * Every alert path claims the budget's daily slot with the same compare-and-set on
+     * last_alert_sent, so the nightly run, on-demand checks and spend-triggered alerts never
+     * alert twice for one budget within a day. False if the slot was already taken.
+     */
+    private boolean sendDailyAlert(Budget budget, double percentageUsed, BigDecimal spent, LocalDateTime now) {
+        if (budgetRepository.claimAlert(budget.getId(), now, now.minusDays(1)) == 0) {
+            return false;
+        }
+        notifyBudgetAlert(budget, percentageUsed, spent);
+        return true;
+    }
+
+    private void notifyBudgetAlert(Budget budget, double percentageUsed, BigDecimal spent) {
         User user = budget.getUser();
         String budgetName = budget.getCategory() != null ?
                 budget.getCategory().getName() : "Overall";
@@ -132,13 +293,9 @@ public class BudgetService {
         );
 
         notificationService.createNotification(user, type, title, message);
-
-        // Update last alert sent time
-        budget.setLastAlertSent(LocalDateTime.now());
-        budgetRepository.save(budget);
     }
 
-    private BudgetDTO convertToDTO(Budget budget) {
+    private BudgetDTO convertToDTO(Budget budget, BigDecimal spent) {
         BudgetDTO dto = new BudgetDTO();
         dto.setId(budget.getId());
         dto.setAmount(budget.getAmount());
@@ -152,14 +309,8 @@ public class BudgetService {
             dto.setCategoryName(budget.getCategory().getName());
         }
 
-        // Calculate current spending
-        BigDecimal spent = calculateSpentAmount(budget);
         dto.setCurrentSpending(spent);
-        dto.setPercentageUsed(
-                spent.divide(budget.getAmount(), 4, RoundingMode.HALF_UP)
-                        .multiply(BigDecimal.valueOf(100))
-                        .doubleValue()
-        );
+        dto.setPercentageUsed(percentageUsed(spent, budget));
 
         return dto;
     }
@@ -173,4 +324,7 @@ public class BudgetService {
         budget.setAlertThreshold(dto.getAlertThreshold() != null ? dto.getAlertThreshold() : 80);
         return budget;
     }
+
+    private record ChunkResult(int evaluated, int alerts, int repaired, long lastBudgetId) {
+    }
 }
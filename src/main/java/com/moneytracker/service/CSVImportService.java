@@ -1,66 +1,144 @@
 package com.moneytracker.service;
 
+import com.moneytracker.dto.IngestionResultDTO;
 import com.moneytracker.model.*;
-import com.moneytracker.repository.CategoryRepository;
-import com.moneytracker.repository.TransactionRepository;
+import com.moneytracker.service.CategoryResolver.ImportCategories;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class CSVImportService {
 
-    private final TransactionRepository transactionRepository;
-    private final CategoryRepository categoryRepository;
+    private final TransactionIngestionService transactionIngestionService;
+    private final CategoryResolver categoryResolver;
     private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
 
-    @Transactional
-    public List<Transaction> importTransactions(MultipartFile file, User user) throws Exception {
-        List<Transaction> transactions = new ArrayList<>();
+    @Value("${csv.import.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Imports the rows of a CSV file. Each row is keyed by a hash of its values plus how many
+     * identical rows came before it in the file, so uploading the same file again (under any
+     * name) adds nothing, while genuinely repeated rows within one file are all kept.
+     * The file is streamed and written in chunks, each committed on its own, so memory use does
+     * not grow with the file and a failure keeps the chunks before it; re-uploading the file
+     * then only adds the rest.
+     */
+    public IngestionResultDTO importTransactions(MultipartFile file, User user) throws Exception {
+        List<ParsedRow> chunk = new ArrayList<>(chunkSize);
+        ImportCategories categories = categoryResolver.forImport(user, "Auto-created from CSV import");
+        // Only the digest prefix is kept per distinct row, enough to number repeated rows
+        Map<RowDigest, Integer> occurrences = new HashMap<>();
+        int[] totals = new int[2]; // inserted, skipped
+        int failed = 0;
 
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()));
              CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
 
             for (CSVRecord record : csvParser) {
                 try {
-                    Transaction transaction = parseCSVRecord(record, user, file.getOriginalFilename());
-                    transactions.add(transaction);
+                    Transaction transaction = parseCSVRecord(record, user);
+                    byte[] rowHash = hashRow(record);
+                    int occurrence = occurrences.merge(RowDigest.of(rowHash), 1, Integer::sum);
+                    transaction.setSourceReference("csv:" + HexFormat.of().formatHex(rowHash) + ":" + occurrence);
+                    String categoryName = record.get("Category").trim();
+                    if (categoryName.isEmpty()) {
+                        throw new IllegalArgumentException("Category is required");
+                    }
+                    chunk.add(new ParsedRow(transaction, categoryName));
                 } catch (Exception e) {
                     // Log error but continue with other records
                     System.err.println("Error parsing CSV record: " + e.getMessage());
+                    failed++;
+                }
+
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(user, categories, chunk, totals);
                 }
             }
         }
-
-        // Save all transactions
-        List<Transaction> saved = transactionRepository.saveAll(transactions);
+        writeChunk(user, categories, chunk, totals);
 
         // Create notification
         notificationService.createNotification(
                 user,
                 NotificationType.SYSTEM,
                 "CSV Import Complete",
-                String.format("Successfully imported %d transactions from %s",
-                        saved.size(), file.getOriginalFilename())
+                String.format("Successfully imported %d transactions from %s (%d already imported)",
+                        totals[0], file.getOriginalFilename(), totals[1])
         );
 
-        return saved;
+        return new IngestionResultDTO(totals[0], totals[1], failed);
     }
 
-    private Transaction parseCSVRecord(CSVRecord record, User user, String fileName) {
+    // Categories new in this chunk are created with its rows; rows already imported from an earlier upload are skipped
+    private void writeChunk(User user, ImportCategories categories, List<ParsedRow> chunk, int[] totals) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        TransactionIngestionService.IngestionResult result = transactionTemplate.execute(status -> {
+            // ✅ SECURE - Categories of THIS USER only
+            Map<String, Category> byName = categories.resolveAll(
+                    chunk.stream().map(ParsedRow::categoryName).collect(Collectors.toSet()));
+            List<Transaction> transactions = new ArrayList<>(chunk.size());
+            for (ParsedRow row : chunk) {
+                row.transaction().setCategory(byName.get(row.categoryName()));
+                transactions.add(row.transaction());
+            }
+            return transactionIngestionService.ingest(user, transactions);
+        });
+        totals[0] += result.inserted().size();
+        totals[1] += result.skipped();
+        chunk.clear();
+    }
+
+    // SHA-256 over the trimmed cell values, separated by a character that cannot appear in them
+    private byte[] hashRow(CSVRecord record) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (String value : record.values()) {
+            digest.update(value.trim().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0x1F);
+        }
+        return digest.digest();
+    }
+
+    // First 128 bits of a row hash; collisions are not a practical concern at that width
+    private record RowDigest(long high, long low) {
+
+        static RowDigest of(byte[] hash) {
+            ByteBuffer buffer = ByteBuffer.wrap(hash);
+            return new RowDigest(buffer.getLong(), buffer.getLong());
+        }
+    }
+
+    private record ParsedRow(Transaction transaction, String categoryName) {
+    }
+
+    private Transaction parseCSVRecord(CSVRecord record, User user) {
         Transaction transaction = new Transaction();
         transaction.setUser(user);
 
@@ -72,11 +150,7 @@ public class CSVImportService {
         transaction.setDescription(record.get("Description"));
         transaction.setAmount(new BigDecimal(record.get("Amount")));
 
-        // ✅ SECURE - Find category for THIS USER only
-        String categoryName = record.get("Category");
-        Category category = categoryRepository.findByNameAndUserId(categoryName, user.getId())
-                .orElseGet(() -> createDefaultCategory(categoryName, user));  // ✅ Pass user
-        transaction.setCategory(category);
+        // Category is resolved per chunk, see writeChunk
 
         // Parse payment method
         try {
@@ -90,23 +164,10 @@ public class CSVImportService {
         }
 
         transaction.setSource(TransactionSource.CSV_IMPORT);
-        transaction.setSourceReference(fileName);
 
         return transaction;
     }
 
-    /**
-     * ✅ SECURE - Creates category for specific user
-     */
-    private Category createDefaultCategory(String categoryName, User user) {
-        Category category = new Category();
-        category.setUser(user);  // ✅ CRITICAL - Set the owner!
-        category.setName(categoryName);
-        category.setDescription("Auto-created from CSV import");
-        category.setColorCode("#667eea");
-        return categoryRepository.save(category);
-    }
-
     public String generateCSVTemplate() {
         return "Date,Description,Amount,Category,PaymentMethod,Notes\n" +
                 "2026-01-31,Sample Transaction,1000.00,Food & Dining,UPI,Sample notes\n";
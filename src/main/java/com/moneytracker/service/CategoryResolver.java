@@ -0,0 +1,114 @@
+package com.moneytracker.service;
+
+import com.moneytracker.model.Category;
+import com.moneytracker.model.User;
+import com.moneytracker.repository.CategoryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves category names to the user's categories for imports (CSV, email), creating the
+ * missing ones. The user's categories are loaded once per import, and all names missing from
+ * a batch are created with one INSERT ... ON CONFLICT, so a name first seen by two imports at
+ * the same time resolves to the same row instead of failing on the (user_id, name) constraint.
+ */
+@Service
+@RequiredArgsConstructor
+public class CategoryResolver {
+
+    private static final String DEFAULT_COLOR = "#667eea";
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO categories (user_id, name, description, color_code, created_at, updated_at) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, now(), now())";
+    private static final String INSERT_SUFFIX = " ON CONFLICT (user_id, name) DO NOTHING RETURNING id, name";
+
+    private final CategoryRepository categoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Starts resolving names for one import, loading the user's existing categories.
+     * Categories created later are described with the given text.
+     */
+    public ImportCategories forImport(User user, String description) {
+        Map<String, Category> byName = new HashMap<>();
+        for (Category category : categoryRepository.findByUserId(user.getId())) {
+            byName.put(category.getName(), category);
+        }
+        return new ImportCategories(user, description, byName);
+    }
+
+    /**
+     * The categories known to one import. Resolve inside the transaction that writes the rows
+     * referring to them, so created categories commit or roll back together with those rows.
+     */
+    public final class ImportCategories {
+
+        private final User user;
+        private final String description;
+        private final Map<String, Category> byName;
+
+        private ImportCategories(User user, String description, Map<String, Category> byName) {
+            this.user = user;
+            this.description = description;
+            this.byName = byName;
+        }
+
+        /**
+         * Returns a category for every given name, creating the missing ones in one statement
+         */
+        public Map<String, Category> resolveAll(Collection<String> names) {
+            Set<String> missing = new LinkedHashSet<>();
+            for (String name : names) {
+                if (!byName.containsKey(name)) {
+                    missing.add(name);
+                }
+            }
+            if (!missing.isEmpty()) {
+                create(missing);
+            }
+            return Collections.unmodifiableMap(byName);
+        }
+
+        private void create(Set<String> names) {
+            List<String> rows = new ArrayList<>(names);
+            String sql = INSERT_PREFIX + String.join(", ", Collections.nCopies(rows.size(), ROW_PLACEHOLDERS)) + INSERT_SUFFIX;
+
+            jdbcTemplate.query(sql, ps -> {
+                int i = 1;
+                for (String name : rows) {
+                    ps.setLong(i++, user.getId());
+                    ps.setString(i++, name);
+                    ps.setString(i++, description);
+                    ps.setString(i++, DEFAULT_COLOR);
+                }
+            }, rs -> {
+                Category category = new Category();
+                category.setId(rs.getLong("id"));
+                category.setName(rs.getString("name"));
+                category.setUser(user);
+                category.setDescription(description);
+                category.setColorCode(DEFAULT_COLOR);
+                byName.put(category.getName(), category);
+            });
+
+            // Names nobody returned were created concurrently (or before the preload); read them back
+            rows.removeIf(byName::containsKey);
+            if (!rows.isEmpty()) {
+                for (Category category : categoryRepository.findByUserIdAndNameIn(user.getId(), rows)) {
+                    byName.put(category.getName(), category);
+                }
+            }
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package com.moneytracker.service;
 
 import com.moneytracker.dto.CategoryDTO;
+import com.moneytracker.event.CategoryRenamedEvent;
+import com.moneytracker.event.SpendingChangedEvent;
+import com.moneytracker.event.SpendingDelta;
 import com.moneytracker.exception.ResourceNotFoundException;
 import com.moneytracker.model.Category;
 import com.moneytracker.model.User;
 import com.moneytracker.repository.CategoryRepository;
 import com.moneytracker.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,6 +23,7 @@ public class CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * ✅ SECURE - Get only current user's categories
@@ -74,12 +79,16 @@ public class CategoryService {
             throw new IllegalArgumentException("Category with name '" + categoryDTO.getName() + "' already exists");
         }
 
+        String oldName = existingCategory.getName();
         existingCategory.setName(categoryDTO.getName());
         existingCategory.setDescription(categoryDTO.getDescription());
         existingCategory.setIconName(categoryDTO.getIconName());
         existingCategory.setColorCode(categoryDTO.getColorCode());
 
         Category updatedCategory = categoryRepository.save(existingCategory);
+        if (!oldName.equals(updatedCategory.getName())) {
+            eventPublisher.publishEvent(new CategoryRenamedEvent(userId, id, oldName, updatedCategory.getName()));
+        }
         return convertToDTO(updatedCategory);
     }
 
@@ -90,7 +99,16 @@ public class CategoryService {
     public void deleteCategory(Long id, Long userId) {
         Category category = categoryRepository.findByIdAndUserId(id, userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found or access denied"));
+
+        // Deleting a category cascades to its transactions, which the cascade loads anyway
+        List<SpendingDelta> removed = category.getTransactions().stream()
+                .map(SpendingDelta::removed)
+                .collect(Collectors.toList());
+
         categoryRepository.delete(category);
+        if (!removed.isEmpty()) {
+            eventPublisher.publishEvent(new SpendingChangedEvent(userId, removed));
+        }
     }
 
     private CategoryDTO convertToDTO(Category category) {
@@ -0,0 +1,271 @@
+package com.moneytracker.service;
+
+import jakarta.mail.BodyPart;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Multipart;
+import jakarta.mail.Part;
+import jakarta.mail.internet.ContentType;
+import jakarta.mail.internet.ParseException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extracts the readable text of an email for rule matching.
+ * Walks the MIME tree recursively but only opens text/plain and text/html parts that are not
+ * attachments. Of alternatives, the plain part is read first and the HTML part after it, since
+ * many senders put only a "view in browser" stub in the plain part. Part bodies are streamed and
+ * reading stops once the byte budget for the message is spent, so with IMAP partial fetch
+ * neither large bodies nor attachments are downloaded and heap use per message is bounded.
+ */
+@Component
+public class EmailContentExtractor {
+
+    @Value("${email.content.max-bytes:65536}")
+    private int maxBytes;
+
+    @Value("${email.content.max-depth:10}")
+    private int maxDepth;
+
+    public String extract(Part message) throws MessagingException, IOException {
+        StringBuilder text = new StringBuilder();
+        collect(message, new int[]{maxBytes}, text, 0);
+        return text.toString();
+    }
+
+    // remaining[0] is the byte budget left for the whole message
+    private void collect(Part part, int[] remaining, StringBuilder text, int depth)
+            throws MessagingException, IOException {
+        if (remaining[0] <= 0 || depth > maxDepth || Part.ATTACHMENT.equalsIgnoreCase(part.getDisposition())) {
+            return;
+        }
+
+        if (part.isMimeType("multipart/alternative")) {
+            for (Part alternative : pickAlternatives((Multipart) part.getContent())) {
+                collect(alternative, remaining, text, depth + 1);
+            }
+        } else if (part.isMimeType("multipart/*")) {
+            Multipart multipart = (Multipart) part.getContent();
+            for (int i = 0; i < multipart.getCount() && remaining[0] > 0; i++) {
+                collect(multipart.getBodyPart(i), remaining, text, depth + 1);
+            }
+        } else if (part.isMimeType("message/rfc822")) {
+            collect((Part) part.getContent(), remaining, text, depth + 1);
+        } else if (part.isMimeType("text/plain")) {
+            appendSeparated(text, readText(part, remaining));
+        } else if (part.isMimeType("text/html")) {
+            appendSeparated(text, HtmlText.strip(readText(part, remaining)));
+        }
+    }
+
+    // text/plain then text/html, whichever exist; else the last alternative (the richest, per RFC 2046)
+    private List<Part> pickAlternatives(Multipart alternatives) throws MessagingException {
+        Part plain = null;
+        Part html = null;
+        Part last = null;
+        for (int i = 0; i < alternatives.getCount(); i++) {
+            BodyPart candidate = alternatives.getBodyPart(i);
+            if (plain == null && candidate.isMimeType("text/plain")) {
+                plain = candidate;
+            } else if (html == null && candidate.isMimeType("text/html")) {
+                html = candidate;
+            }
+            last = candidate;
+        }
+
+        List<Part> picked = new ArrayList<>(2);
+        if (plain != null) {
+            picked.add(plain);
+        }
+        if (html != null) {
+            picked.add(html);
+        }
+        if (picked.isEmpty() && last != null) {
+            picked.add(last);
+        }
+        return picked;
+    }
+
+    private String readText(Part part, int[] remaining) throws MessagingException, IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.min(remaining[0], 8192));
+        byte[] buffer = new byte[Math.min(remaining[0], 8192)];
+        try (InputStream in = part.getInputStream()) {
+            int read;
+            while (remaining[0] > 0 && (read = in.read(buffer, 0, Math.min(buffer.length, remaining[0]))) != -1) {
+                bytes.write(buffer, 0, read);
+                remaining[0] -= read;
+            }
+        }
+        // A character cut in half at the budget boundary decodes to a replacement character
+        return bytes.toString(charsetOf(part));
+    }
+
+    private static Charset charsetOf(Part part) throws MessagingException {
+        try {
+            String charset = new ContentType(part.getContentType()).getParameter("charset");
+            if (charset != null && Charset.isSupported(charset)) {
+                return Charset.forName(charset);
+            }
+        } catch (ParseException | IllegalArgumentException e) {
+            // Malformed header; fall through to the default
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static void appendSeparated(StringBuilder text, String content) {
+        if (content.isEmpty()) {
+            return;
+        }
+        if (!text.isEmpty()) {
+            text.append('\n');
+        }
+        text.append(content);
+    }
+
+    /**
+     * Single-pass HTML to text conversion: tags are dropped, script and style contents are
+     * skipped, common entities are decoded and whitespace is collapsed. Block-level tags
+     * become line breaks so amounts in adjacent table cells don't run together.
+     */
+    static final class HtmlText {
+
+        private static final Set<String> BLOCK_TAGS = Set.of(
+                "br", "p", "div", "tr", "td", "th", "li", "table", "h1", "h2", "h3", "h4", "h5", "h6");
+        private static final Map<String, String> ENTITIES = Map.of(
+                "amp", "&", "lt", "<", "gt", ">", "quot", "\"", "apos", "'", "nbsp", " ");
+
+        private HtmlText() {
+        }
+
+        static String strip(String html) {
+            StringBuilder out = new StringBuilder(html.length() / 2);
+            int length = html.length();
+            int i = 0;
+            while (i < length) {
+                char c = html.charAt(i);
+                if (c == '<') {
+                    i = skipTag(html, i, out);
+                } else if (c == '&') {
+                    i = decodeEntity(html, i, out);
+                } else {
+                    // Line breaks in the markup itself are not line breaks in the text
+                    appendChar(out, Character.isWhitespace(c) ? ' ' : c);
+                    i++;
+                }
+            }
+            return out.toString().strip();
+        }
+
+        // Returns the index just past the tag (and past the element body for script/style)
+        private static int skipTag(String html, int start, StringBuilder out) {
+            if (html.startsWith("<!--", start)) {
+                int end = html.indexOf("-->", start + 4);
+                return end < 0 ? html.length() : end + 3;
+            }
+            int end = html.indexOf('>', start + 1);
+            if (end < 0) {
+                return html.length();
+            }
+
+            int nameStart = start + 1;
+            if (nameStart < end && html.charAt(nameStart) == '/') {
+                nameStart++;
+            }
+            int nameEnd = nameStart;
+            while (nameEnd < end && Character.isLetterOrDigit(html.charAt(nameEnd))) {
+                nameEnd++;
+            }
+            String name = html.substring(nameStart, nameEnd).toLowerCase(Locale.ROOT);
+
+            if (BLOCK_TAGS.contains(name)) {
+                appendChar(out, '\n');
+            } else {
+                appendChar(out, ' ');
+            }
+            if ((name.equals("script") || name.equals("style")) && html.charAt(start + 1) != '/') {
+                int close = indexOfIgnoreCase(html, "</" + name, end + 1);
+                if (close < 0) {
+                    return html.length();
+                }
+                int closeEnd = html.indexOf('>', close);
+                return closeEnd < 0 ? html.length() : closeEnd + 1;
+            }
+            return end + 1;
+        }
+
+        private static int decodeEntity(String html, int start, StringBuilder out) {
+            int end = html.indexOf(';', start + 1);
+            if (end < 0 || end - start > 10) {
+                appendChar(out, '&');
+                return start + 1;
+            }
+            String entity = html.substring(start + 1, end);
+            String decoded = null;
+            if (entity.startsWith("#")) {
+                try {
+                    int codePoint = entity.length() > 1 && (entity.charAt(1) == 'x' || entity.charAt(1) == 'X')
+                            ? Integer.parseInt(entity.substring(2), 16)
+                            : Integer.parseInt(entity.substring(1));
+                    if (Character.isValidCodePoint(codePoint)) {
+                        decoded = new String(Character.toChars(codePoint));
+                    }
+                } catch (NumberFormatException e) {
+                    // Not a numeric reference after all; keep it literally
+                }
+            } else {
+                decoded = ENTITIES.get(entity.toLowerCase(Locale.ROOT));
+            }
+
+            if (decoded == null) {
+                appendChar(out, '&');
+                return start + 1;
+            }
+            for (int i = 0; i < decoded.length(); i++) {
+                appendChar(out, decoded.charAt(i));
+            }
+            return end + 1;
+        }
+
+        // Collapses runs of whitespace to one space, or one newline if the run contained a line break
+        private static void appendChar(StringBuilder out, char c) {
+            if (!Character.isWhitespace(c) && c != '\u00A0') { // isWhitespace excludes no-break space
+                out.append(c);
+                return;
+            }
+            int last = out.length() - 1;
+            if (last < 0) {
+                return;
+            }
+            char previous = out.charAt(last);
+            if (previous == '\n') {
+                return;
+            }
+            if (previous == ' ') {
+                if (c == '\n') {
+                    out.setCharAt(last, '\n');
+                }
+                return;
+            }
+            out.append(c == '\n' ? '\n' : ' ');
+        }
+
+        private static int indexOfIgnoreCase(String text, String needle, int from) {
+            for (int i = from; i <= text.length() - needle.length(); i++) {
+                if (text.regionMatches(true, i, needle, 0, needle.length())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.moneytracker.service;
+
+import com.moneytracker.dto.EmailParsingJobDTO;
+import com.moneytracker.model.EmailParsingJobStatus;
+import com.moneytracker.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs mailbox syncs in the background on a bounded pool.
+ * A user has at most one sync queued or running; triggering again while it is in flight
+ * returns that job instead of starting another IMAP session. When every worker is busy and
+ * the queue is full, new jobs are rejected rather than piling up.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailParsingJobService {
+
+    private final EmailParsingService emailParsingService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${email.parsing.jobs.max-concurrent:8}")
+    private int maxConcurrent;
+
+    @Value("${email.parsing.jobs.queue-capacity:100}")
+    private int queueCapacity;
+
+    // Latest job per user; finished jobs stay until the next trigger so their outcome can be read
+    private final Map<Long, Job> jobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("email-parse-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        meterRegistry.gauge("email.parsing.jobs.active", executor, ThreadPoolExecutor::getActiveCount);
+        meterRegistry.gauge("email.parsing.jobs.queued", executor, e -> e.getQueue().size());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues a sync of the user's mailbox, or returns the one already queued or running.
+     * Throws RejectedExecutionException if the pool is saturated.
+     */
+    public EmailParsingJobDTO submit(User user) {
+        return submit(user, null);
+    }
+
+    /**
+     * Like {@link #submit(User)}, and calls back with the final state once the job (new or
+     * joined) has finished. Not called if the job is rejected; the exception says so instead.
+     */
+    public EmailParsingJobDTO submit(User user, Consumer<EmailParsingJobDTO> onFinished) {
+        Job created = new Job();
+        Job job = jobs.compute(user.getId(), (userId, current) ->
+                current != null && current.status.isActive() ? current : created);
+        if (job != created) {
+            log.info("Email parsing already in progress for user {}, joining it", user.getUsername());
+            if (onFinished != null) {
+                job.onFinished(onFinished);
+            }
+            return job.toDTO();
+        }
+        if (onFinished != null) {
+            job.onFinished(onFinished);
+        }
+
+        try {
+            executor.execute(() -> run(job, user));
+        } catch (RejectedExecutionException e) {
+            job.reject("Too many email syncs in progress");
+            meterRegistry.counter("email.parsing.jobs.rejected").increment();
+            log.warn("Email parsing queue full, rejected job for user {}", user.getUsername());
+            throw e;
+        }
+        return job.toDTO();
+    }
+
+    /**
+     * For triggers that mean new mail has arrived. A queued sync is joined as usual, but a
+     * running one may already have listed the mailbox before the mail came in, so it is asked
+     * to queue another sync as soon as it finishes. Throws RejectedExecutionException if a new
+     * job is needed and the pool is saturated.
+     */
+    public EmailParsingJobDTO submitFollowUp(User user) {
+        Job current = jobs.computeIfPresent(user.getId(), (userId, job) -> {
+            if (job.status == EmailParsingJobStatus.RUNNING) {
+                job.rerunRequested = true;
+            }
+            return job;
+        });
+        if (current != null && current.rerunRequested && current.status.isActive()) {
+            log.info("Email parsing running for user {}, queueing a follow-up sync", user.getUsername());
+            return current.toDTO();
+        }
+        return submit(user);
+    }
+
+    /**
+     * How many more jobs can be accepted right now without being rejected
+     */
+    public int availableSlots() {
+        int idleWorkers = Math.max(executor.getMaximumPoolSize() - executor.getActiveCount(), 0);
+        return idleWorkers + executor.getQueue().remainingCapacity();
+    }
+
+    public Optional<EmailParsingJobDTO> getJob(Long userId) {
+        return Optional.ofNullable(jobs.get(userId)).map(Job::toDTO);
+    }
+
+    private void run(Job job, User user) {
+        job.startedAt = LocalDateTime.now();
+        job.status = EmailParsingJobStatus.RUNNING;
+        long startedNanos = System.nanoTime();
+        try {
+            int added = emailParsingService.parseEmailsForUser(user);
+            job.finish(EmailParsingJobStatus.SUCCEEDED, added, null);
+        } catch (RuntimeException e) {
+            log.error("Error parsing emails for user {}: {}", user.getUsername(), e.getMessage());
+            job.finish(EmailParsingJobStatus.FAILED, null, e.getMessage());
+        } finally {
+            meterRegistry.timer("email.parsing.jobs.duration", "status", job.status.name())
+                    .record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+        }
+
+        // Read after the final status is written: a follow-up request either lands before this
+        // read or sees the job finished and submits on its own
+        if (job.rerunRequested) {
+            try {
+                submit(user);
+            } catch (RejectedExecutionException e) {
+                log.warn("Could not queue follow-up email sync for user {}: {}", user.getUsername(), e.getMessage());
+            }
+        }
+    }
+
+    private static class Job {
+
+        private final LocalDateTime queuedAt = LocalDateTime.now();
+        private volatile EmailParsingJobStatus status = EmailParsingJobStatus.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile Integer transactionsAdded;
+        private volatile String error;
+        private volatile boolean rerunRequested; // new mail arrived after this sync listed the mailbox
+        private final List<Consumer<EmailParsingJobDTO>> listeners = new ArrayList<>();
+
+        synchronized void onFinished(Consumer<EmailParsingJobDTO> listener) {
+            if (status.isActive()) {
+                listeners.add(listener);
+            } else {
+                listener.accept(toDTO());
+            }
+        }
+
+        void reject(String message) {
+            synchronized (this) {
+                listeners.clear();
+                error = message;
+                finishedAt = LocalDateTime.now();
+                status = EmailParsingJobStatus.REJECTED;
+            }
+        }
+
+        void finish(EmailParsingJobStatus finalStatus, Integer added, String message) {
+            List<Consumer<EmailParsingJobDTO>> toNotify;
+            synchronized (this) {
+                transactionsAdded = added;
+                error = message;
+                finishedAt = LocalDateTime.now();
+                status = finalStatus;
+                toNotify = List.copyOf(listeners);
+                listeners.clear();
+            }
+
+            EmailParsingJobDTO result = toDTO();
+            for (Consumer<EmailParsingJobDTO> listener : toNotify) {
+                try {
+                    listener.accept(result);
+                } catch (RuntimeException e) {
+                    log.error("Email parsing job listener failed", e);
+                }
+            }
+        }
+
+        EmailParsingJobDTO toDTO() {
+            return new EmailParsingJobDTO(status, queuedAt, startedAt, finishedAt, transactionsAdded, error);
+        }
+    }
+}
@@ -1,201 +1,244 @@
 package com.moneytracker.service;
 
 import com.moneytracker.model.*;
-import com.moneytracker.repository.TransactionRepository;
-import com.moneytracker.repository.CategoryRepository;
+import com.moneytracker.repository.EmailSyncStateRepository;
 import jakarta.mail.*;
-import jakarta.mail.search.FlagTerm;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.InterruptedIOException;
 import java.math.BigDecimal;
+import java.net.SocketException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class EmailParsingService {
 
-    private final TransactionRepository transactionRepository;
-    private final CategoryRepository categoryRepository;
+    private final TransactionIngestionService transactionIngestionService;
+    private final CategoryResolver categoryResolver;
     private final NotificationService notificationService;
+    private final ImapStorePool imapStorePool;
+    private final EmailSyncStateRepository syncStateRepository;
+    private final EmailRuleService emailRuleService;
+    private final EmailContentExtractor contentExtractor;
+    private final TransactionTemplate transactionTemplate;
 
-    // Email patterns for different services
-    private static final Map<String, EmailPattern> EMAIL_PATTERNS = new HashMap<>();
-
-    static {
-        // Netflix
-        EMAIL_PATTERNS.put("netflix", new EmailPattern(
-                "netflix.com",
-                "Your Netflix bill",
-                "(?:Rs\\.|INR|₹)\\s*(\\d+(?:\\.\\d{2})?)",
-                "Entertainment"
-        ));
-
-        // Amazon
-        EMAIL_PATTERNS.put("amazon", new EmailPattern(
-                "amazon.in",
-                "Your Amazon.*order",
-                "(?:Total:|Order Total:)\\s*(?:Rs\\.|INR|₹)\\s*(\\d+(?:\\.\\d{2})?)",
-                "Shopping"
-        ));
-
-        // Swiggy
-        EMAIL_PATTERNS.put("swiggy", new EmailPattern(
-                "swiggy.in",
-                "Your Swiggy order",
-                "(?:Total bill|Bill total)\\s*(?:Rs\\.|INR|₹)\\s*(\\d+(?:\\.\\d{2})?)",
-                "Food & Dining"
-        ));
-
-        // Zomato
-        EMAIL_PATTERNS.put("zomato", new EmailPattern(
-                "zomato.com",
-                "Your Zomato order",
-                "(?:Total|Bill Amount)\\s*(?:Rs\\.|INR|₹)\\s*(\\d+(?:\\.\\d{2})?)",
-                "Food & Dining"
-        ));
-
-        // Uber
-        EMAIL_PATTERNS.put("uber", new EmailPattern(
-                "uber.com",
-                "Your.*trip with Uber",
-                "(?:Trip Fare|Total)\\s*(?:Rs\\.|INR|₹)\\s*(\\d+(?:\\.\\d{2})?)",
-                "Transportation"
-        ));
-
-        // Credit Card Statements (Generic)
-        EMAIL_PATTERNS.put("creditcard", new EmailPattern(
-                "statement|credit card",
-                "Transaction Alert|Purchase",
-                "(?:Amount|Transaction)\\s*(?:Rs\\.|INR|₹)\\s*(\\d+(?:\\.\\d{2})?)",
-                "Other"
-        ));
-
-        // Bank Debit Alerts
-        EMAIL_PATTERNS.put("bank", new EmailPattern(
-                "bank|hdfc|icici|sbi|axis",
-                "Debit Alert|Debited",
-                "(?:debited|withdrawn)\\s*(?:with|by|for)?\\s*(?:Rs\\.|INR|₹)?\\s*(\\d+(?:\\.\\d{2})?)",
-                "Other"
-        ));
-    }
+    private static final String INBOX = "INBOX";
+
+    // Messages looked at the first time a folder is synced (or after its UIDVALIDITY changed)
+    @Value("${email.sync.initial-limit:200}")
+    private int initialSyncLimit;
+
+    // Envelopes prefetched per round trip
+    @Value("${email.sync.fetch-batch-size:100}")
+    private int fetchBatchSize;
 
-    @Transactional
-    public void parseEmailsForUser(User user) {
+    /**
+     * Syncs the user's inbox and returns how many transactions were added.
+     * Messages are fetched and parsed without a database transaction; the results are then
+     * written, together with the new sync checkpoint, in one short transaction.
+     * Throws IllegalStateException if the mailbox could not be reached.
+     */
+    public int parseEmailsForUser(User user) {
         if (!user.getEmailParsingEnabled() ||
                 user.getEmailImapHost() == null ||
                 user.getEmailImapUsername() == null) {
             log.info("Email parsing not enabled or not configured for user: {}", user.getUsername());
-            return;
+            return 0;
         }
 
-        try {
-            Store store = connectToEmailServer(user);
-            Folder inbox = store.getFolder("INBOX");
-            inbox.open(Folder.READ_WRITE);
+        SyncResult result;
+        try (ImapStorePool.Lease lease = imapStorePool.borrow(user)) {
+            Folder inbox = lease.store().getFolder(INBOX);
+            try {
+                // Read-only: syncing never changes the user's read/unread state
+                inbox.open(Folder.READ_ONLY);
+                result = fetchNewTransactions(inbox, user);
+            } catch (MessagingException e) {
+                // The connection may be dead; don't hand it to the next caller
+                lease.invalidate();
+                throw e;
+            } finally {
+                if (inbox.isOpen()) {
+                    inbox.close(false);
+                }
+            }
+        } catch (MessagingException e) {
+            log.error("Error connecting to email server for user {}: {}", user.getUsername(), e.getMessage());
+            throw new IllegalStateException("Could not sync mailbox: " + e.getMessage(), e);
+        }
 
-            // Get unread messages
-            Message[] messages = inbox.search(new FlagTerm(new Flags(Flags.Flag.SEEN), false));
-            log.info("Found {} unread messages for user: {}", messages.length, user.getUsername());
+        List<Transaction> saved = saveSyncResult(user, result);
+        notifyAdded(user, saved);
+
+        log.info("Successfully parsed {} transactions from emails for user: {}", saved.size(), user.getUsername());
+        return saved.size();
+    }
+
+    /**
+     * Looks only at messages with a UID above the stored checkpoint. Envelopes are prefetched
+     * in batches and bodies are downloaded only for messages whose sender or subject matches
+     * a known pattern. The checkpoint advances past messages that were parsed, matched no rule
+     * or cannot be parsed at all; a lost connection fails the sync before the checkpoint is
+     * saved, so the messages it interrupted are fetched again next time.
+     */
+    private SyncResult fetchNewTransactions(Folder inbox, User user) throws MessagingException {
+        UIDFolder uidFolder = (UIDFolder) inbox;
+        long uidValidity = uidFolder.getUIDValidity();
+        EmailSyncState state = syncStateRepository.findByUserIdAndFolderName(user.getId(), INBOX)
+                .orElseGet(() -> {
+                    EmailSyncState newState = new EmailSyncState();
+                    newState.setUser(user);
+                    newState.setFolderName(INBOX);
+                    newState.setUidValidity(uidValidity);
+                    return newState;
+                });
+
+        boolean initialSync = state.getId() == null || state.getUidValidity() != uidValidity;
+        Message[] messages;
+        if (initialSync) {
+            int total = inbox.getMessageCount();
+            messages = total == 0 ? new Message[0] : inbox.getMessages(Math.max(1, total - initialSyncLimit + 1), total);
+            state.setUidValidity(uidValidity);
+            state.setLastUid(0L);
+        } else {
+            messages = uidFolder.getMessagesByUID(state.getLastUid() + 1, UIDFolder.LASTUID);
+        }
+        log.info("Checking {} new messages for user: {}", messages.length, user.getUsername());
+
+        FetchProfile envelope = new FetchProfile();
+        envelope.add(FetchProfile.Item.ENVELOPE);
+        envelope.add(UIDFolder.FetchProfileItem.UID);
+        envelope.add("Message-ID");
+
+        EmailRuleEngine rules = emailRuleService.currentEngine();
+        long lastUid = state.getLastUid();
+        List<ParsedEmail> parsed = new ArrayList<>();
+        for (int start = 0; start < messages.length; start += fetchBatchSize) {
+            Message[] batch = Arrays.copyOfRange(messages, start, Math.min(start + fetchBatchSize, messages.length));
+            inbox.fetch(batch, envelope);
+
+            for (Message message : batch) {
+                long uid = uidFolder.getUID(message);
+                // "n:*" always returns the newest message, even when its UID is below n
+                if (uid <= state.getLastUid()) {
+                    continue;
+                }
 
-            int parsedCount = 0;
-            for (Message message : messages) {
                 try {
-                    Transaction transaction = parseEmailMessage(message, user);
-                    if (transaction != null) {
-                        transactionRepository.save(transaction);
-                        parsedCount++;
-
-                        // Create notification
-                        notificationService.createNotification(
-                                user,
-                                NotificationType.EMAIL_PARSED,
-                                "Transaction Auto-Added",
-                                String.format("₹%.2f transaction added from email: %s",
-                                        transaction.getAmount(), transaction.getDescription())
-                        );
-
-                        // Mark as read
-                        message.setFlag(Flags.Flag.SEEN, true);
+                    // Sender and subject come from the prefetched envelope; the body is only fetched below
+                    List<EmailRuleEngine.CompiledRule> candidates = rules.findCandidates(
+                            getEmailAddress(message.getFrom()), message.getSubject());
+                    if (!candidates.isEmpty()) {
+                        ParsedEmail email = parseEmailMessage(message, candidates);
+                        if (email != null) {
+                            parsed.add(email);
+                        }
                     }
                 } catch (Exception e) {
-                    log.error("Error parsing email: {}", e.getMessage());
+                    if (isConnectionFailure(inbox, e)) {
+                        throw e instanceof MessagingException me ? me
+                                : new MessagingException("Connection lost while reading message " + uid, e);
+                    }
+                    // The message itself is malformed; retrying it would fail the same way
+                    log.error("Skipping unparsable email {} for user {}: {}", uid, user.getUsername(), e.getMessage());
                 }
+                lastUid = Math.max(lastUid, uid);
             }
+        }
 
-            inbox.close(false);
-            store.close();
-
-            log.info("Successfully parsed {} transactions from emails for user: {}", parsedCount, user.getUsername());
+        return new SyncResult(state, lastUid, parsed);
+    }
 
-        } catch (Exception e) {
-            log.error("Error connecting to email server for user {}: {}", user.getUsername(), e.getMessage());
+    // Closed folders and stores, socket errors and timeouts; anything else is a problem with the message
+    private static boolean isConnectionFailure(Folder inbox, Exception e) {
+        if (!inbox.isOpen() || !inbox.getStore().isConnected()) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof FolderClosedException || cause instanceof StoreClosedException
+                    || cause instanceof SocketException || cause instanceof InterruptedIOException) {
+                return true;
+            }
         }
+        return false;
     }
 
-    private Store connectToEmailServer(User user) throws MessagingException {
-        Properties props = new Properties();
-        props.put("mail.store.protocol", "imaps");
-        props.put("mail.imaps.host", user.getEmailImapHost());
-        props.put("mail.imaps.port", "993");
-        props.put("mail.imaps.ssl.enable", "true");
+    /**
+     * Resolves the categories in one go, inserts the new transactions and moves the checkpoint in one
+     * transaction, so a failed write leaves the messages to be parsed again next time.
+     */
+    private List<Transaction> saveSyncResult(User user, SyncResult result) {
+        return transactionTemplate.execute(status -> {
+            // ✅ SECURE - Categories of THIS USER only; missing ones are created in one statement
+            Map<String, Category> categories = result.parsed().isEmpty() ? Map.of() :
+                    categoryResolver.forImport(user, "Auto-created from email parsing").resolveAll(
+                            result.parsed().stream().map(ParsedEmail::categoryName).collect(Collectors.toSet()));
+            List<Transaction> transactions = new ArrayList<>(result.parsed().size());
+            for (ParsedEmail email : result.parsed()) {
+                transactions.add(email.toTransaction(user, categories.get(email.categoryName())));
+            }
 
-        Session session = Session.getInstance(props);
-        Store store = session.getStore("imaps");
-        store.connect(user.getEmailImapHost(), user.getEmailImapUsername(), user.getEmailImapPassword());
+            // Messages parsed before (e.g. after a lost checkpoint) are skipped by Message-ID
+            List<Transaction> saved = transactionIngestionService.ingest(user, transactions).inserted();
 
-        return store;
+            EmailSyncState state = result.state();
+            state.setLastUid(result.lastUid());
+            state.setLastSyncedAt(LocalDateTime.now());
+            syncStateRepository.save(state);
+            return saved;
+        });
     }
 
-    private Transaction parseEmailMessage(Message message, User user) throws Exception {
+    // One notification per sync run rather than one per email
+    private void notifyAdded(User user, List<Transaction> saved) {
+        if (saved.isEmpty()) {
+            return;
+        }
+
+        String message;
+        if (saved.size() == 1) {
+            Transaction transaction = saved.get(0);
+            message = String.format("₹%.2f transaction added from email: %s",
+                    transaction.getAmount(), transaction.getDescription());
+        } else {
+            BigDecimal total = saved.stream().map(Transaction::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+            message = String.format("%d transactions totalling ₹%.2f added from email", saved.size(), total);
+        }
+        notificationService.createNotification(user, NotificationType.EMAIL_PARSED, "Transactions Auto-Added", message);
+    }
+
+    private ParsedEmail parseEmailMessage(Message message,
+                                          List<EmailRuleEngine.CompiledRule> candidates) throws Exception {
         String from = getEmailAddress(message.getFrom());
         String subject = message.getSubject();
-        String content = getEmailContent(message);
-
-        // Try to match against known patterns
-        for (Map.Entry<String, EmailPattern> entry : EMAIL_PATTERNS.entrySet()) {
-            EmailPattern pattern = entry.getValue();
-
-            if (from.toLowerCase().contains(pattern.fromPattern.toLowerCase()) ||
-                    subject.toLowerCase().matches(".*" + pattern.subjectPattern.toLowerCase() + ".*")) {
-
-                // Extract amount
-                Pattern amountPattern = Pattern.compile(pattern.amountPattern, Pattern.CASE_INSENSITIVE);
-                Matcher matcher = amountPattern.matcher(content);
-
-                if (matcher.find()) {
-                    String amountStr = matcher.group(1).replace(",", "");
-                    BigDecimal amount = new BigDecimal(amountStr);
-
-                    // ✅ SECURE - Find category for THIS USER only
-                    Category category = categoryRepository.findByNameAndUserId(pattern.defaultCategory, user.getId())
-                            .orElseGet(() -> createDefaultCategory(pattern.defaultCategory, user));  // ✅ Pass user
-
-                    // Create transaction
-                    Transaction transaction = new Transaction();
-                    transaction.setUser(user);
-                    transaction.setDescription(subject);
-                    transaction.setAmount(amount);
-                    transaction.setTransactionDate(
-                            message.getSentDate().toInstant()
-                                    .atZone(ZoneId.systemDefault())
-                                    .toLocalDate()
-                    );
-                    transaction.setPaymentMethod(detectPaymentMethod(content, from));
-                    transaction.setCategory(category);
-                    transaction.setSource(TransactionSource.EMAIL_PARSED);
-                    transaction.setSourceReference(message.getHeader("Message-ID")[0]);
-                    transaction.setNotes("Auto-parsed from email: " + from);
-
-                    return transaction;
-                }
+        String content = contentExtractor.extract(message);
+
+        // Try the rules whose sender or subject matched
+        for (EmailRuleEngine.CompiledRule rule : candidates) {
+            Optional<BigDecimal> extracted = rule.extractAmount(content);
+
+            if (extracted.isPresent()) {
+                String[] messageId = message.getHeader("Message-ID");
+                return new ParsedEmail(
+                        rule.getCategory(),
+                        subject,
+                        extracted.get(),
+                        message.getSentDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate(),
+                        detectPaymentMethod(content, from),
+                        messageId != null && messageId.length > 0 ?
+                                messageId[0] : "uid:" + ((UIDFolder) message.getFolder()).getUID(message),
+                        "Auto-parsed from email: " + from
+                );
             }
         }
 
@@ -209,24 +252,6 @@ public class EmailParsingService {
         return "";
     }
 
-    private String getEmailContent(Message message) throws Exception {
-        Object content = message.getContent();
-        if (content instanceof String) {
-            return (String) content;
-        } else if (content instanceof Multipart) {
-            Multipart multipart = (Multipart) content;
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < multipart.getCount(); i++) {
-                BodyPart bodyPart = multipart.getBodyPart(i);
-                if (bodyPart.getContent() instanceof String) {
-                    sb.append(bodyPart.getContent());
-                }
-            }
-            return sb.toString();
-        }
-        return "";
-    }
-
     private PaymentMethod detectPaymentMethod(String content, String from) {
         String lowerContent = content.toLowerCase();
         String lowerFrom = from.toLowerCase();
@@ -246,30 +271,30 @@ public class EmailParsingService {
         return PaymentMethod.NET_BANKING;
     }
 
-    /**
-     * ✅ SECURE - Creates category for specific user
-     */
-    private Category createDefaultCategory(String categoryName, User user) {
-        Category category = new Category();
-        category.setUser(user);  // ✅ CRITICAL - Set the owner!
-        category.setName(categoryName);
-        category.setDescription("Auto-created from email parsing");
-        category.setColorCode("#667eea");
-        return categoryRepository.save(category);
+    private record SyncResult(EmailSyncState state, long lastUid, List<ParsedEmail> parsed) {
     }
 
-    // Helper class to store email patterns
-    private static class EmailPattern {
-        String fromPattern;
-        String subjectPattern;
-        String amountPattern;
-        String defaultCategory;
-
-        EmailPattern(String fromPattern, String subjectPattern, String amountPattern, String defaultCategory) {
-            this.fromPattern = fromPattern;
-            this.subjectPattern = subjectPattern;
-            this.amountPattern = amountPattern;
-            this.defaultCategory = defaultCategory;
+    // A transaction read from an email, not yet tied to a category entity
+    private record ParsedEmail(String categoryName,
+                               String description,
+                               BigDecimal amount,
+                               LocalDate transactionDate,
+                               PaymentMethod paymentMethod,
+                               String sourceReference,
+                               String notes) {
+
+        Transaction toTransaction(User user, Category category) {
+            Transaction transaction = new Transaction();
+            transaction.setUser(user);
+            transaction.setDescription(description);
+            transaction.setAmount(amount);
+            transaction.setTransactionDate(transactionDate);
+            transaction.setPaymentMethod(paymentMethod);
+            transaction.setCategory(category);
+            transaction.setSource(TransactionSource.EMAIL_PARSED);
+            transaction.setSourceReference(sourceReference);
+            transaction.setNotes(notes);
+            return transaction;
         }
     }
 }
@@ -0,0 +1,199 @@
+package com.moneytracker.service;
+
+import com.moneytracker.dto.EmailParsingJobDTO;
+import com.moneytracker.model.EmailParsingJobStatus;
+import com.moneytracker.model.EmailPollSchedule;
+import com.moneytracker.model.User;
+import com.moneytracker.repository.EmailPollScheduleRepository;
+import com.moneytracker.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Polls the mailbox of every user with email parsing enabled.
+ * Each mailbox has its own interval in email_poll_schedules: it halves after a poll that found
+ * transactions, grows by half after an empty one, and backs off exponentially while the mailbox
+ * keeps failing. Every next poll time is jittered so mailboxes drift apart instead of firing
+ * together. Nodes claim due mailboxes with SKIP LOCKED and a lease, and hand them to the shared
+ * {@link EmailParsingJobService} pool, taking no more than it can accept.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailPollingScheduler {
+
+    private final EmailPollScheduleRepository scheduleRepository;
+    private final UserRepository userRepository;
+    private final EmailParsingJobService jobService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${email.polling.enabled:true}")
+    private boolean enabled;
+
+    @Value("${email.polling.default-interval-seconds:900}")
+    private long defaultIntervalSeconds;
+
+    @Value("${email.polling.min-interval-seconds:300}")
+    private long minIntervalSeconds;
+
+    @Value("${email.polling.max-interval-seconds:7200}")
+    private long maxIntervalSeconds;
+
+    @Value("${email.polling.max-failure-backoff-seconds:86400}")
+    private long maxFailureBackoffSeconds;
+
+    @Value("${email.polling.busy-retry-seconds:60}")
+    private long busyRetrySeconds;
+
+    // Fraction of the interval by which the next poll is moved either way
+    @Value("${email.polling.jitter:0.2}")
+    private double jitter;
+
+    @Value("${email.polling.batch-size:50}")
+    private int batchSize;
+
+    @Value("${email.polling.lease-minutes:30}")
+    private long leaseMinutes;
+
+    @Value("${email.polling.node-id:}")
+    private String configuredNodeId;
+
+    private String nodeId;
+
+    @PostConstruct
+    void init() {
+        nodeId = configuredNodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : configuredNodeId;
+    }
+
+    @Scheduled(fixedDelayString = "${email.polling.tick-ms:30000}",
+               initialDelayString = "${email.polling.initial-delay-ms:60000}")
+    public void pollDueMailboxes() {
+        if (!enabled) {
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        Integer enrolled = transactionTemplate.execute(status ->
+                scheduleRepository.insertMissing(now, defaultIntervalSeconds));
+
+        int limit = Math.min(batchSize, jobService.availableSlots());
+        List<EmailPollSchedule> claimed = limit > 0
+                ? transactionTemplate.execute(status -> claimDue(now, limit))
+                : List.of();
+
+        int submitted = 0;
+        int rejected = 0;
+        if (!claimed.isEmpty()) {
+            Map<Long, User> users = userRepository.findAllById(
+                            claimed.stream().map(EmailPollSchedule::getUserId).toList()).stream()
+                    .collect(Collectors.toMap(User::getId, Function.identity()));
+
+            for (EmailPollSchedule schedule : claimed) {
+                User user = users.get(schedule.getUserId());
+                if (user == null) {
+                    continue;
+                }
+                if (submit(user, schedule)) {
+                    submitted++;
+                } else {
+                    rejected++;
+                }
+            }
+        }
+
+        meterRegistry.timer("email.polling.tick").record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("email.polling.submitted").increment(submitted);
+        meterRegistry.counter("email.polling.rejected").increment(rejected);
+        if (submitted > 0 || rejected > 0 || (enrolled != null && enrolled > 0)) {
+            log.info("Email polling on {}: {} mailboxes enrolled, {} submitted, {} deferred (pool busy)",
+                    nodeId, enrolled, submitted, rejected);
+        }
+    }
+
+    private List<EmailPollSchedule> claimDue(LocalDateTime now, int limit) {
+        List<EmailPollSchedule> due = scheduleRepository.lockDue(now, limit);
+        for (EmailPollSchedule schedule : due) {
+            schedule.setClaimedBy(nodeId);
+            schedule.setClaimedUntil(now.plusMinutes(leaseMinutes));
+        }
+        return due;
+    }
+
+    private boolean submit(User user, EmailPollSchedule schedule) {
+        long startedAt = System.nanoTime();
+        try {
+            jobService.submit(user, result -> {
+                meterRegistry.timer("email.polling.poll", "status", result.getStatus().name())
+                        .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                reschedule(schedule, result);
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Pool saturated, e.g. by manual triggers: try again shortly, not counted as a failure
+            release(schedule, LocalDateTime.now().plusSeconds(jittered(busyRetrySeconds)));
+            return false;
+        }
+    }
+
+    private void reschedule(EmailPollSchedule schedule, EmailParsingJobDTO result) {
+        long interval = schedule.getIntervalSeconds();
+        int failures = schedule.getConsecutiveFailures();
+        long delay;
+
+        if (result.getStatus() == EmailParsingJobStatus.SUCCEEDED) {
+            failures = 0;
+            interval = result.getTransactionsAdded() != null && result.getTransactionsAdded() > 0
+                    ? interval / 2
+                    : interval + interval / 2;
+            interval = Math.max(minIntervalSeconds, Math.min(maxIntervalSeconds, interval));
+            delay = interval;
+        } else {
+            failures++;
+            // interval * 2^failures, capped; shifting is bounded so it cannot overflow
+            delay = Math.min(maxFailureBackoffSeconds, interval << Math.min(failures, 20));
+        }
+
+        int finalFailures = failures;
+        long finalInterval = interval;
+        LocalDateTime now = LocalDateTime.now();
+        Integer updated = transactionTemplate.execute(status -> scheduleRepository.reschedule(
+                schedule.getUserId(), nodeId, now.plusSeconds(jittered(delay)), finalInterval,
+                finalFailures, now, result.getTransactionsAdded()));
+        if (updated == null || updated == 0) {
+            log.warn("Lost poll lease for user {} before it finished", schedule.getUserId());
+        }
+        meterRegistry.summary("email.polling.interval.seconds").record(finalInterval);
+    }
+
+    private void release(EmailPollSchedule schedule, LocalDateTime nextPollAt) {
+        transactionTemplate.executeWithoutResult(status -> scheduleRepository.reschedule(
+                schedule.getUserId(), nodeId, nextPollAt, schedule.getIntervalSeconds(),
+                schedule.getConsecutiveFailures(), schedule.getLastPolledAt(), schedule.getLastTransactionsAdded()));
+    }
+
+    private long jittered(long seconds) {
+        if (jitter <= 0) {
+            return seconds;
+        }
+        double factor = 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        return Math.max(1, Math.round(seconds * factor));
+    }
+}
@@ -0,0 +1,440 @@
+package com.moneytracker.service;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable, precompiled set of email parsing rules.
+ * Sender keywords of all rules are indexed in one Aho-Corasick automaton, so a sender is
+ * scanned once no matter how many rules exist. Subject patterns are indexed the same way by
+ * the literal text they cannot match without, and a subject regex only runs when that text
+ * occurs in the subject. Subject and amount regexes are compiled when the engine is built.
+ * Safe to share between threads.
+ */
+public final class EmailRuleEngine {
+
+    /**
+     * Amount with optional thousands separators, western (1,234.56) or Indian (1,23,456.78).
+     * Use {@value #AMOUNT_PLACEHOLDER} in a rule's amount pattern to insert it as group 1.
+     */
+    public static final String AMOUNT_REGEX = "(\\d+(?:,\\d{2,3})*(?:\\.\\d{1,2})?)";
+    public static final String AMOUNT_PLACEHOLDER = "{amount}";
+
+    private final List<CompiledRule> rules;
+    private final KeywordIndex senderIndex;
+    private final KeywordIndex subjectIndex;
+    // Rules whose subject pattern has no required literal; their regex runs on every subject
+    private final BitSet unindexedSubjects;
+
+    private EmailRuleEngine(List<CompiledRule> rules, KeywordIndex senderIndex,
+                            KeywordIndex subjectIndex, BitSet unindexedSubjects) {
+        this.rules = rules;
+        this.senderIndex = senderIndex;
+        this.subjectIndex = subjectIndex;
+        this.unindexedSubjects = unindexedSubjects;
+    }
+
+    /**
+     * Compiles the definitions in order; earlier rules win when several match a message.
+     * Throws IllegalArgumentException naming the rule if any of its patterns is invalid.
+     */
+    public static EmailRuleEngine compile(List<RuleDefinition> definitions) {
+        List<CompiledRule> rules = new ArrayList<>(definitions.size());
+        KeywordIndex.Builder index = new KeywordIndex.Builder();
+        KeywordIndex.Builder subjectIndex = new KeywordIndex.Builder();
+        BitSet unindexedSubjects = new BitSet();
+
+        for (int i = 0; i < definitions.size(); i++) {
+            RuleDefinition definition = definitions.get(i);
+            rules.add(new CompiledRule(i, definition));
+            // "|" separates alternative sender keywords, e.g. "hdfc|icici|sbi"
+            if (definition.senderKeywords() != null) {
+                for (String keyword : definition.senderKeywords().split("\\|")) {
+                    if (!keyword.isBlank()) {
+                        index.add(keyword.trim().toLowerCase(Locale.ROOT), i);
+                    }
+                }
+            }
+            if (rules.get(i).subjectPattern != null) {
+                List<String> literals = SubjectLiterals.of(definition.subjectPattern());
+                if (literals == null) {
+                    unindexedSubjects.set(i);
+                } else {
+                    for (String literal : literals) {
+                        subjectIndex.add(literal, i);
+                    }
+                }
+            }
+        }
+
+        return new EmailRuleEngine(List.copyOf(rules), index.build(), subjectIndex.build(), unindexedSubjects);
+    }
+
+    public List<CompiledRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Rules whose sender keywords occur in the sender or whose subject pattern matches,
+     * in rule order. Works on envelope data only, so bodies need not be downloaded first.
+     * Subject regexes only run for rules the sender did not already select and whose
+     * required subject text occurs, so the cost per message does not grow with the rule count.
+     */
+    public List<CompiledRule> findCandidates(String from, String subject) {
+        BitSet matched = senderIndex.search(from != null ? from.toLowerCase(Locale.ROOT) : "");
+
+        if (subject != null && !subject.isEmpty()) {
+            BitSet toCheck = subjectIndex.search(SubjectLiterals.fold(subject));
+            toCheck.or(unindexedSubjects);
+            toCheck.andNot(matched);
+            for (int i = toCheck.nextSetBit(0); i >= 0; i = toCheck.nextSetBit(i + 1)) {
+                if (rules.get(i).subjectPattern.matcher(subject).find()) {
+                    matched.set(i);
+                }
+            }
+        }
+
+        List<CompiledRule> candidates = new ArrayList<>(matched.cardinality());
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            candidates.add(rules.get(i));
+        }
+        return candidates;
+    }
+
+    public record RuleDefinition(String name,
+                                 String senderKeywords,
+                                 String subjectPattern,
+                                 String amountPattern,
+                                 String category) {
+    }
+
+    public static final class CompiledRule {
+
+        private final int index;
+        private final String name;
+        private final String category;
+        private final Pattern subjectPattern;
+        private final Pattern amountPattern;
+
+        private CompiledRule(int index, RuleDefinition definition) {
+            this.index = index;
+            this.name = definition.name();
+            this.category = definition.category();
+            this.subjectPattern = compilePattern(definition, definition.subjectPattern());
+            this.amountPattern = compilePattern(definition,
+                    definition.amountPattern().replace(AMOUNT_PLACEHOLDER, AMOUNT_REGEX));
+            if (amountPattern.matcher("").groupCount() < 1) {
+                throw new IllegalArgumentException("Rule '" + name + "': amount pattern needs a capturing group");
+            }
+        }
+
+        private static Pattern compilePattern(RuleDefinition definition, String regex) {
+            if (regex == null || regex.isBlank()) {
+                return null;
+            }
+            try {
+                return Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Rule '" + definition.name() + "': invalid pattern: " + e.getMessage(), e);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        /**
+         * First amount in the content, without thousands separators
+         */
+        public Optional<BigDecimal> extractAmount(String content) {
+            Matcher matcher = amountPattern.matcher(content);
+            if (!matcher.find() || matcher.group(1) == null) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(new BigDecimal(matcher.group(1).replace(",", "")));
+            } catch (NumberFormatException e) {
+                return Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * Reads the literal text a subject pattern cannot match without: for each top-level
+     * alternative, its longest run of plain ASCII characters outside groups, classes and
+     * optional quantifiers. Anything it does not fully understand (inline flags, \Q..\E,
+     * numeric or property escapes, an alternative without literal text) yields null, and the
+     * rule's regex then runs on every subject. Literals and subjects are compared case-folded,
+     * as the patterns are compiled case-insensitively.
+     */
+    static final class SubjectLiterals {
+
+        // Escapes that match a class of characters or a position; they end a literal run
+        private static final String CLASS_ESCAPES = "dDsSwWbBAGZzhHvVR";
+
+        private SubjectLiterals() {
+        }
+
+        static String fold(String text) {
+            StringBuilder folded = new StringBuilder(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                // Upper then lower case, so e.g. the long s and the Kelvin sign fold like the regex matches them
+                folded.append(Character.toLowerCase(Character.toUpperCase(text.charAt(i))));
+            }
+            return folded.toString();
+        }
+
+        static List<String> of(String regex) {
+            List<String> literals = new ArrayList<>();
+            int branchStart = 0;
+            int i = 0;
+            while (i <= regex.length()) {
+                if (i == regex.length() || regex.charAt(i) == '|') {
+                    String literal = longestLiteral(regex.substring(branchStart, i));
+                    if (literal == null || literal.isEmpty()) {
+                        return null;
+                    }
+                    literals.add(fold(literal));
+                    branchStart = ++i;
+                    continue;
+                }
+                char c = regex.charAt(i);
+                if (c == '\\') {
+                    i += 2;
+                } else if (c == '[') {
+                    i = skipClass(regex, i);
+                } else if (c == '(') {
+                    i = skipGroup(regex, i);
+                } else {
+                    i++;
+                }
+                if (i < 0) {
+                    return null;
+                }
+            }
+            return literals;
+        }
+
+        // Longest required literal of a branch without top-level alternation; null if unsupported
+        private static String longestLiteral(String branch) {
+            String best = "";
+            StringBuilder current = new StringBuilder();
+            int i = 0;
+            while (i < branch.length()) {
+                char c = branch.charAt(i);
+                if (c == '\\') {
+                    if (i + 1 >= branch.length()) {
+                        return null;
+                    }
+                    char escaped = branch.charAt(i + 1);
+                    if (Character.isLetterOrDigit(escaped)) {
+                        if (CLASS_ESCAPES.indexOf(escaped) < 0) {
+                            return null;
+                        }
+                        best = longer(best, current);
+                    } else if (escaped < 128) {
+                        current.append(escaped);
+                    } else {
+                        best = longer(best, current);
+                    }
+                    i += 2;
+                    continue;
+                }
+
+                switch (c) {
+                    case '[' -> {
+                        best = longer(best, current);
+                        i = skipClass(branch, i);
+                    }
+                    case '(' -> {
+                        if (branch.startsWith("(?", i) && i + 2 < branch.length()
+                                && ":=!<".indexOf(branch.charAt(i + 2)) < 0) {
+                            return null; // inline flags, e.g. (?x), change how the rest is read
+                        }
+                        best = longer(best, current);
+                        i = skipGroup(branch, i);
+                    }
+                    case '*', '?' -> {
+                        // The preceding character may be absent
+                        dropLast(current);
+                        best = longer(best, current);
+                        i++;
+                    }
+                    case '{' -> {
+                        dropLast(current);
+                        best = longer(best, current);
+                        int close = branch.indexOf('}', i);
+                        i = close < 0 ? -1 : close + 1;
+                    }
+                    case '+', '.', '^', '$' -> {
+                        best = longer(best, current);
+                        i++;
+                    }
+                    case ')', ']' -> {
+                        return null;
+                    }
+                    default -> {
+                        if (c < 128) {
+                            current.append(c);
+                        } else {
+                            best = longer(best, current);
+                        }
+                        i++;
+                    }
+                }
+                if (i < 0) {
+                    return null;
+                }
+            }
+            return longer(best, current);
+        }
+
+        // Returns the longer of best and current, and starts a new run
+        private static String longer(String best, StringBuilder current) {
+            String candidate = current.toString();
+            current.setLength(0);
+            return candidate.length() > best.length() ? candidate : best;
+        }
+
+        private static void dropLast(StringBuilder current) {
+            if (!current.isEmpty()) {
+                current.setLength(current.length() - 1);
+            }
+        }
+
+        // Index just past the class starting at start, nested classes included; -1 if unterminated
+        private static int skipClass(String regex, int start) {
+            int depth = 0;
+            int i = start;
+            while (i < regex.length()) {
+                char c = regex.charAt(i);
+                if (c == '\\') {
+                    i += 2;
+                    continue;
+                }
+                if (c == '[') {
+                    depth++;
+                    // A ']' right after the opening bracket (or its negation) is a literal
+                    if (regex.startsWith("^]", i + 1)) {
+                        i += 2;
+                    } else if (regex.startsWith("]", i + 1)) {
+                        i++;
+                    }
+                } else if (c == ']' && --depth == 0) {
+                    return i + 1;
+                }
+                i++;
+            }
+            return -1;
+        }
+
+        // Index just past the group starting at start, skipping nested groups and classes; -1 if unterminated
+        private static int skipGroup(String regex, int start) {
+            int depth = 0;
+            int i = start;
+            while (i < regex.length()) {
+                char c = regex.charAt(i);
+                if (c == '\\') {
+                    if (regex.startsWith("\\Q", i)) {
+                        return -1;
+                    }
+                    i += 2;
+                    continue;
+                }
+                if (c == '[') {
+                    i = skipClass(regex, i);
+                    if (i < 0) {
+                        return -1;
+                    }
+                    continue;
+                }
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')' && --depth == 0) {
+                    return i + 1;
+                }
+                i++;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Aho-Corasick automaton mapping keywords to rule indexes
+     */
+    private static final class KeywordIndex {
+
+        private final Node root;
+
+        private KeywordIndex(Node root) {
+            this.root = root;
+        }
+
+        BitSet search(String text) {
+            BitSet matches = new BitSet();
+            Node node = root;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                while (node != root && !node.children.containsKey(c)) {
+                    node = node.fail;
+                }
+                node = node.children.getOrDefault(c, root);
+                matches.or(node.output);
+            }
+            return matches;
+        }
+
+        private static final class Node {
+            private final Map<Character, Node> children = new HashMap<>();
+            private final BitSet output = new BitSet();
+            private Node fail;
+        }
+
+        private static final class Builder {
+
+            private final Node root = new Node();
+
+            void add(String keyword, int ruleIndex) {
+                Node node = root;
+                for (int i = 0; i < keyword.length(); i++) {
+                    node = node.children.computeIfAbsent(keyword.charAt(i), c -> new Node());
+                }
+                node.output.set(ruleIndex);
+            }
+
+            // Breadth-first failure links; each node also inherits the outputs of its failure node
+            KeywordIndex build() {
+                root.fail = root;
+                Deque<Node> queue = new ArrayDeque<>();
+                for (Node child : root.children.values()) {
+                    child.fail = root;
+                    queue.add(child);
+                }
+
+                while (!queue.isEmpty()) {
+                    Node node = queue.poll();
+                    for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+                        char c = entry.getKey();
+                        Node child = entry.getValue();
+
+                        Node fail = node.fail;
+                        while (fail != root && !fail.children.containsKey(c)) {
+                            fail = fail.fail;
+                        }
+                        Node target = fail.children.get(c);
+                        child.fail = target != null && target != child ? target : root;
+                        child.output.or(child.fail.output);
+                        queue.add(child);
+                    }
+                }
+                return new KeywordIndex(root);
+            }
+        }
+    }
+}
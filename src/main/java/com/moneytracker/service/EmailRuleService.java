@@ -0,0 +1,350 @@
+package com.moneytracker.service;
+
+import com.moneytracker.dto.EmailRuleDTO;
+import com.moneytracker.dto.EmailRuleSetDTO;
+import com.moneytracker.dto.EmailSampleMessageDTO;
+import com.moneytracker.dto.RuleDryRunDTO;
+import com.moneytracker.exception.ResourceNotFoundException;
+import com.moneytracker.model.EmailParsingRule;
+import com.moneytracker.model.EmailRuleSet;
+import com.moneytracker.model.EmailSampleMessage;
+import com.moneytracker.repository.EmailParsingRuleRepository;
+import com.moneytracker.repository.EmailRuleSetRepository;
+import com.moneytracker.repository.EmailSampleMessageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Owns the email parsing rules. Rule sets live in the database as numbered versions; the
+ * active one is compiled into an immutable EmailRuleEngine and published through an
+ * AtomicReference, so parsers read it without locking and a new version replaces it in one
+ * step. Every node polls for a newly activated version and swaps it in.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailRuleService {
+
+    // Rules the first rule set is seeded with, tried in this order
+    static final List<EmailRuleEngine.RuleDefinition> BUILT_IN_RULES = List.of(
+            // Netflix
+            new EmailRuleEngine.RuleDefinition("netflix",
+                    "netflix.com",
+                    "Your Netflix bill",
+                    "(?:Rs\\.|INR|₹)\\s*{amount}",
+                    "Entertainment"),
+
+            // Amazon
+            new EmailRuleEngine.RuleDefinition("amazon",
+                    "amazon.in",
+                    "Your Amazon.*order",
+                    "(?:Total:|Order Total:)\\s*(?:Rs\\.|INR|₹)\\s*{amount}",
+                    "Shopping"),
+
+            // Swiggy
+            new EmailRuleEngine.RuleDefinition("swiggy",
+                    "swiggy.in",
+                    "Your Swiggy order",
+                    "(?:Total bill|Bill total)\\s*(?:Rs\\.|INR|₹)\\s*{amount}",
+                    "Food & Dining"),
+
+            // Zomato
+            new EmailRuleEngine.RuleDefinition("zomato",
+                    "zomato.com",
+                    "Your Zomato order",
+                    "(?:Total|Bill Amount)\\s*(?:Rs\\.|INR|₹)\\s*{amount}",
+                    "Food & Dining"),
+
+            // Uber
+            new EmailRuleEngine.RuleDefinition("uber",
+                    "uber.com",
+                    "Your.*trip with Uber",
+                    "(?:Trip Fare|Total)\\s*(?:Rs\\.|INR|₹)\\s*{amount}",
+                    "Transportation"),
+
+            // Credit Card Statements (Generic)
+            new EmailRuleEngine.RuleDefinition("creditcard",
+                    "statement|credit card",
+                    "Transaction Alert|Purchase",
+                    "(?:Amount|Transaction)\\s*(?:Rs\\.|INR|₹)\\s*{amount}",
+                    "Other"),
+
+            // Bank Debit Alerts
+            new EmailRuleEngine.RuleDefinition("bank",
+                    "bank|hdfc|icici|sbi|axis",
+                    "Debit Alert|Debited",
+                    "(?:debited|withdrawn)\\s*(?:with|by|for)?\\s*(?:Rs\\.|INR|₹)?\\s*{amount}",
+                    "Other")
+    );
+
+    private final EmailRuleSetRepository ruleSetRepository;
+    private final EmailParsingRuleRepository ruleRepository;
+    private final EmailSampleMessageRepository sampleRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Built-in rules until the database has been read
+    private final AtomicReference<RuleSnapshot> snapshot =
+            new AtomicReference<>(new RuleSnapshot(null, 0L, EmailRuleEngine.compile(BUILT_IN_RULES)));
+
+    /**
+     * The compiled rules of the active rule set
+     */
+    public EmailRuleEngine currentEngine() {
+        return snapshot.get().engine();
+    }
+
+    /**
+     * Picks up a newly activated rule set; seeds version 1 from the built-in rules on first start
+     */
+    @Scheduled(fixedDelayString = "${email.rules.reload-interval-ms:60000}", initialDelay = 0)
+    public void reloadIfChanged() {
+        Optional<EmailRuleSet> active = ruleSetRepository.findFirstByIsActiveTrue();
+        if (active.isEmpty() && ruleSetRepository.count() == 0) {
+            seedBuiltInRules();
+            active = ruleSetRepository.findFirstByIsActiveTrue();
+        }
+        if (active.isEmpty()) {
+            return;
+        }
+
+        EmailRuleSet ruleSet = active.get();
+        if (ruleSet.getId().equals(snapshot.get().ruleSetId())) {
+            return;
+        }
+
+        try {
+            EmailRuleEngine engine = EmailRuleEngine.compile(loadDefinitions(ruleSet.getId()));
+            snapshot.set(new RuleSnapshot(ruleSet.getId(), ruleSet.getVersion(), engine));
+            log.info("Loaded email rule set version {} ({} rules)", ruleSet.getVersion(), engine.getRules().size());
+        } catch (IllegalArgumentException e) {
+            log.error("Email rule set version {} does not compile, keeping version {}: {}",
+                    ruleSet.getVersion(), snapshot.get().version(), e.getMessage());
+        }
+    }
+
+    private void seedBuiltInRules() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                ruleSetRepository.lockForWrite();
+                if (ruleSetRepository.count() > 0) {
+                    return; // another node seeded while this one waited for the lock
+                }
+                EmailRuleSet ruleSet = saveRuleSet("Built-in rules", BUILT_IN_RULES);
+                ruleSet.setIsActive(true);
+                ruleSet.setActivatedAt(LocalDateTime.now());
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another node seeded at the same time
+            log.debug("Built-in email rules already seeded");
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<EmailRuleSetDTO> getRuleSets() {
+        return ruleSetRepository.findAllByOrderByVersionDesc().stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Stores a new, inactive version. Rules are compiled first, so a broken regex is rejected here.
+     */
+    @Transactional
+    public EmailRuleSetDTO createRuleSet(EmailRuleSetDTO ruleSetDTO) {
+        List<EmailRuleEngine.RuleDefinition> definitions = ruleSetDTO.getRules().stream()
+                .map(rule -> new EmailRuleEngine.RuleDefinition(rule.getName(), rule.getSenderKeywords(),
+                        rule.getSubjectPattern(), rule.getAmountPattern(), rule.getCategory()))
+                .collect(Collectors.toList());
+        EmailRuleEngine.compile(definitions);
+
+        return convertToDTO(saveRuleSet(ruleSetDTO.getDescription(), definitions));
+    }
+
+    public EmailRuleSetDTO activateRuleSet(Long ruleSetId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Concurrent activations run one after another, so each sees the other's active row
+            ruleSetRepository.lockForWrite();
+            EmailRuleSet ruleSet = ruleSetRepository.findById(ruleSetId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Rule set not found"));
+            ruleSetRepository.deactivateAllExcept(ruleSetId);
+            ruleSet.setIsActive(true);
+            ruleSet.setActivatedAt(LocalDateTime.now());
+        });
+
+        // This node switches immediately; the others on their next reload
+        reloadIfChanged();
+        return transactionTemplate.execute(status -> convertToDTO(ruleSetRepository.findById(ruleSetId).orElseThrow()));
+    }
+
+    /**
+     * Runs a rule set over every stored sample message without touching any data
+     */
+    @Transactional(readOnly = true)
+    public RuleDryRunDTO dryRun(Long ruleSetId) {
+        EmailRuleSet ruleSet = ruleSetRepository.findById(ruleSetId)
+                .orElseThrow(() -> new ResourceNotFoundException("Rule set not found"));
+        EmailRuleEngine engine = EmailRuleEngine.compile(loadDefinitions(ruleSetId));
+        List<EmailSampleMessage> samples = sampleRepository.findAll();
+
+        List<EmailRuleEngine.CompiledRule> rules = engine.getRules();
+        int[] candidates = new int[rules.size()];
+        int[] matches = new int[rules.size()];
+        long[] nanos = new long[rules.size()];
+        long selectionNanos = 0;
+        int matched = 0;
+        int expected = 0;
+        int correct = 0;
+
+        for (EmailSampleMessage sample : samples) {
+            long startedAt = System.nanoTime();
+            List<EmailRuleEngine.CompiledRule> selected = engine.findCandidates(sample.getSender(), sample.getSubject());
+            selectionNanos += System.nanoTime() - startedAt;
+
+            String body = sample.getBody() != null ? sample.getBody() : "";
+            BigDecimal amount = null;
+            for (EmailRuleEngine.CompiledRule rule : selected) {
+                int i = rules.indexOf(rule);
+                candidates[i]++;
+                startedAt = System.nanoTime();
+                Optional<BigDecimal> extracted = rule.extractAmount(body);
+                nanos[i] += System.nanoTime() - startedAt;
+                if (extracted.isPresent()) {
+                    matches[i]++;
+                    amount = extracted.get();
+                    break;
+                }
+            }
+
+            if (amount != null) {
+                matched++;
+            }
+            if (sample.getExpectedAmount() != null) {
+                expected++;
+                if (amount != null && amount.compareTo(sample.getExpectedAmount()) == 0) {
+                    correct++;
+                }
+            }
+        }
+
+        List<RuleDryRunDTO.RuleStats> ruleStats = new ArrayList<>(rules.size());
+        for (int i = 0; i < rules.size(); i++) {
+            double totalMicros = nanos[i] / 1000.0;
+            ruleStats.add(new RuleDryRunDTO.RuleStats(rules.get(i).getName(), candidates[i], matches[i],
+                    totalMicros, candidates[i] == 0 ? 0.0 : totalMicros / candidates[i]));
+        }
+
+        return new RuleDryRunDTO(
+                ruleSet.getId(),
+                ruleSet.getVersion(),
+                samples.size(),
+                matched,
+                samples.isEmpty() ? 0.0 : (double) matched / samples.size(),
+                expected,
+                correct,
+                selectionNanos / 1000.0,
+                ruleStats
+        );
+    }
+
+    @Transactional(readOnly = true)
+    public List<EmailSampleMessageDTO> getSampleMessages() {
+        return sampleRepository.findAll().stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
+    public EmailSampleMessageDTO addSampleMessage(EmailSampleMessageDTO sampleDTO) {
+        EmailSampleMessage sample = new EmailSampleMessage();
+        sample.setSender(sampleDTO.getSender());
+        sample.setSubject(sampleDTO.getSubject());
+        sample.setBody(sampleDTO.getBody());
+        sample.setExpectedAmount(sampleDTO.getExpectedAmount());
+        return convertToDTO(sampleRepository.save(sample));
+    }
+
+    @Transactional
+    public void deleteSampleMessage(Long sampleId) {
+        EmailSampleMessage sample = sampleRepository.findById(sampleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Sample message not found"));
+        sampleRepository.delete(sample);
+    }
+
+    // Numbering under the table lock keeps concurrent creates from both taking MAX(version) + 1
+    private EmailRuleSet saveRuleSet(String description, List<EmailRuleEngine.RuleDefinition> definitions) {
+        ruleSetRepository.lockForWrite();
+        Long maxVersion = ruleSetRepository.findMaxVersion();
+
+        EmailRuleSet ruleSet = new EmailRuleSet();
+        ruleSet.setVersion(maxVersion != null ? maxVersion + 1 : 1L);
+        ruleSet.setDescription(description);
+        ruleSet.setIsActive(false);
+        EmailRuleSet saved = ruleSetRepository.save(ruleSet);
+
+        List<EmailParsingRule> rules = new ArrayList<>(definitions.size());
+        for (int i = 0; i < definitions.size(); i++) {
+            EmailRuleEngine.RuleDefinition definition = definitions.get(i);
+            EmailParsingRule rule = new EmailParsingRule();
+            rule.setRuleSet(saved);
+            rule.setPosition(i);
+            rule.setName(definition.name());
+            rule.setSenderKeywords(definition.senderKeywords());
+            rule.setSubjectPattern(definition.subjectPattern());
+            rule.setAmountPattern(definition.amountPattern());
+            rule.setCategory(definition.category());
+            rules.add(rule);
+        }
+        ruleRepository.saveAll(rules);
+        return saved;
+    }
+
+    private List<EmailRuleEngine.RuleDefinition> loadDefinitions(Long ruleSetId) {
+        return ruleRepository.findByRuleSetIdOrderByPosition(ruleSetId).stream()
+                .map(rule -> new EmailRuleEngine.RuleDefinition(rule.getName(), rule.getSenderKeywords(),
+                        rule.getSubjectPattern(), rule.getAmountPattern(), rule.getCategory()))
+                .collect(Collectors.toList());
+    }
+
+    private EmailRuleSetDTO convertToDTO(EmailRuleSet ruleSet) {
+        List<EmailRuleDTO> rules = loadDefinitions(ruleSet.getId()).stream()
+                .map(definition -> new EmailRuleDTO(definition.name(), definition.senderKeywords(),
+                        definition.subjectPattern(), definition.amountPattern(), definition.category()))
+                .collect(Collectors.toList());
+
+        return new EmailRuleSetDTO(
+                ruleSet.getId(),
+                ruleSet.getVersion(),
+                ruleSet.getDescription(),
+                ruleSet.getIsActive(),
+                ruleSet.getCreatedAt(),
+                ruleSet.getActivatedAt(),
+                rules
+        );
+    }
+
+    private EmailSampleMessageDTO convertToDTO(EmailSampleMessage sample) {
+        return new EmailSampleMessageDTO(
+                sample.getId(),
+                sample.getSender(),
+                sample.getSubject(),
+                sample.getBody(),
+                sample.getExpectedAmount()
+        );
+    }
+
+    private record RuleSnapshot(Long ruleSetId, Long version, EmailRuleEngine engine) {
+    }
+}
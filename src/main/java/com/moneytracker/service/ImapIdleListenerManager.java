@@ -0,0 +1,304 @@
+package com.moneytracker.service;
+
+import com.moneytracker.event.UserChangedEvent;
+import com.moneytracker.model.EmailPollSchedule;
+import com.moneytracker.model.User;
+import com.moneytracker.repository.EmailPollScheduleRepository;
+import com.moneytracker.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Folder;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Store;
+import jakarta.mail.event.MessageCountAdapter;
+import jakarta.mail.event.MessageCountEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.angus.mail.imap.IMAPFolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Holds IMAP IDLE connections for users who opted into push mode, so new mail is synced
+ * seconds after it arrives instead of at the next poll.
+ * Ownership of a mailbox's listener is a lease on its email_poll_schedules row, renewed while
+ * the connection is healthy; scheduled polling skips the mailbox only while that lease is live.
+ * Mailboxes beyond the per-node listener cap, or whose listener keeps failing to reconnect,
+ * therefore fall back to polling without any extra bookkeeping.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImapIdleListenerManager {
+
+    private static final String INBOX = "INBOX";
+
+    private final EmailPollScheduleRepository scheduleRepository;
+    private final UserRepository userRepository;
+    private final ImapStorePool imapStorePool;
+    private final EmailParsingJobService jobService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${email.idle.enabled:true}")
+    private boolean enabled;
+
+    @Value("${email.idle.max-listeners:200}")
+    private int maxListeners;
+
+    @Value("${email.idle.reconcile-interval-ms:60000}")
+    private long reconcileIntervalMs;
+
+    @Value("${email.idle.lease-seconds:300}")
+    private long leaseSeconds;
+
+    // Servers drop IDLE after about 30 minutes of silence, so it is re-issued well before that
+    @Value("${email.idle.refresh-minutes:9}")
+    private long refreshMinutes;
+
+    @Value("${email.idle.reconnect-initial-delay-ms:5000}")
+    private long reconnectInitialDelayMs;
+
+    @Value("${email.idle.reconnect-max-delay-ms:300000}")
+    private long reconnectMaxDelayMs;
+
+    @Value("${email.idle.max-reconnect-attempts:8}")
+    private int maxReconnectAttempts;
+
+    @Value("${email.idle.node-id:}")
+    private String configuredNodeId;
+
+    private final Map<Long, IdleListener> listeners = new ConcurrentHashMap<>();
+    private ExecutorService threads;
+    private String nodeId;
+
+    @PostConstruct
+    void init() {
+        nodeId = configuredNodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : configuredNodeId;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("imap-idle-");
+        threadFactory.setDaemon(true);
+        // One thread per listener; the listener count is capped by reconcile(), not by the pool
+        threads = Executors.newCachedThreadPool(threadFactory);
+        meterRegistry.gauge("email.idle.listeners", listeners, Map::size);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        List<Long> userIds = List.copyOf(listeners.keySet());
+        listeners.values().forEach(IdleListener::stop);
+        listeners.clear();
+        threads.shutdownNow();
+        try {
+            // Hand the mailboxes straight back to polling rather than waiting for the leases to lapse
+            transactionTemplate.executeWithoutResult(status ->
+                    userIds.forEach(userId -> scheduleRepository.releaseIdleLease(userId, nodeId)));
+        } catch (RuntimeException e) {
+            log.warn("Could not release IMAP IDLE leases on shutdown: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Drops the user's listener after a settings change; the next reconcile starts a new one
+     * with the current credentials if the user still has push mode on.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        IdleListener listener = listeners.remove(event.userId());
+        if (listener != null) {
+            listener.stop();
+        }
+    }
+
+    /**
+     * Claims or renews this node's share of push mailboxes, starts listeners for newly claimed
+     * ones, stops those it no longer owns and refreshes long-running IDLE commands.
+     */
+    @Scheduled(fixedDelayString = "${email.idle.reconcile-interval-ms:60000}",
+               initialDelayString = "${email.idle.initial-delay-ms:90000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailPollSchedule> owned = transactionTemplate.execute(status -> claimMailboxes(now));
+        Set<Long> ownedIds = owned.stream().map(EmailPollSchedule::getUserId).collect(Collectors.toSet());
+
+        listeners.forEach((userId, listener) -> {
+            if (!ownedIds.contains(userId)) {
+                log.info("No longer listening for new mail of user {}", userId);
+                listeners.remove(userId, listener);
+                listener.stop();
+                // No-op if another node has taken the mailbox over; otherwise polling resumes at once
+                transactionTemplate.executeWithoutResult(status -> scheduleRepository.releaseIdleLease(userId, nodeId));
+            }
+        });
+
+        List<Long> toStart = ownedIds.stream().filter(userId -> !listeners.containsKey(userId)).toList();
+        for (User user : userRepository.findAllById(toStart)) {
+            IdleListener listener = new IdleListener(user);
+            listeners.put(user.getId(), listener);
+            threads.execute(listener);
+        }
+
+        listeners.values().forEach(IdleListener::refreshIfDue);
+    }
+
+    private List<EmailPollSchedule> claimMailboxes(LocalDateTime now) {
+        List<EmailPollSchedule> candidates = scheduleRepository.lockIdleCandidates(nodeId, now, maxListeners);
+        for (EmailPollSchedule schedule : candidates) {
+            IdleListener listener = listeners.get(schedule.getUserId());
+            schedule.setIdleOwner(nodeId);
+            // A listener stuck reconnecting keeps ownership but lets its lease lapse, so polling covers the gap
+            if (listener == null || listener.connected) {
+                schedule.setIdleLeaseUntil(now.plusSeconds(leaseSeconds));
+            }
+        }
+        return candidates;
+    }
+
+    private void syncNow(IdleListener listener) {
+        try {
+            // A sync already running may have listed the mailbox before the new mail, so it reruns
+            jobService.submitFollowUp(listener.user);
+            listener.syncPending = false;
+        } catch (RejectedExecutionException e) {
+            // Retried on the next reconcile
+            listener.syncPending = true;
+        }
+    }
+
+    private class IdleListener implements Runnable {
+
+        private final User user;
+        private volatile boolean stopped;
+        private volatile boolean connected;
+        private volatile boolean syncPending;
+        private volatile long idleStartedAt;
+        private volatile Store store;
+        private volatile IMAPFolder folder;
+
+        IdleListener(User user) {
+            this.user = user;
+        }
+
+        @Override
+        public void run() {
+            long delay = reconnectInitialDelayMs;
+            int attempts = 0;
+            while (!stopped) {
+                try {
+                    connect();
+                    attempts = 0;
+                    delay = reconnectInitialDelayMs;
+                    log.info("Listening for new mail of user {} with IMAP IDLE", user.getUsername());
+
+                    // Catch up on anything that arrived while there was no connection
+                    syncNow(this);
+                    while (!stopped && folder.isOpen()) {
+                        idleStartedAt = System.nanoTime();
+                        folder.idle();
+                    }
+                } catch (MessagingException | RuntimeException e) {
+                    if (!stopped) {
+                        log.warn("IMAP IDLE connection for user {} failed: {}", user.getUsername(), e.getMessage());
+                    }
+                } finally {
+                    disconnect();
+                }
+
+                if (stopped) {
+                    break;
+                }
+                if (++attempts > maxReconnectAttempts) {
+                    log.warn("Giving up IMAP IDLE for user {} after {} attempts, falling back to polling",
+                            user.getUsername(), maxReconnectAttempts);
+                    meterRegistry.counter("email.idle.abandoned").increment();
+                    listeners.remove(user.getId(), this);
+                    transactionTemplate.executeWithoutResult(status ->
+                            scheduleRepository.releaseIdleLease(user.getId(), nodeId));
+                    break;
+                }
+
+                meterRegistry.counter("email.idle.reconnects").increment();
+                try {
+                    TimeUnit.MILLISECONDS.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                delay = Math.min(delay * 2, reconnectMaxDelayMs);
+            }
+        }
+
+        private void connect() throws MessagingException {
+            // No reply is expected for up to a refresh period, plus slack for a late reconcile
+            long readTimeoutMs = TimeUnit.MINUTES.toMillis(refreshMinutes) + 2 * reconcileIntervalMs;
+            store = imapStorePool.connectUnpooled(user, readTimeoutMs);
+            folder = (IMAPFolder) store.getFolder(INBOX);
+            folder.open(Folder.READ_ONLY);
+            folder.addMessageCountListener(new MessageCountAdapter() {
+                @Override
+                public void messagesAdded(MessageCountEvent event) {
+                    meterRegistry.counter("email.idle.messages").increment(event.getMessages().length);
+                    // The sync starts from the stored UID checkpoint, so it parses exactly the new messages
+                    syncNow(IdleListener.this);
+                }
+            });
+            connected = true;
+        }
+
+        // Any command ends the running IDLE; the listener loop then issues a fresh one
+        void refreshIfDue() {
+            if (syncPending) {
+                syncNow(this);
+            }
+            IMAPFolder current = folder;
+            if (!connected || current == null
+                    || System.nanoTime() - idleStartedAt < TimeUnit.MINUTES.toNanos(refreshMinutes)) {
+                return;
+            }
+            try {
+                current.doCommand(protocol -> {
+                    protocol.simpleCommand("NOOP", null);
+                    return null;
+                });
+            } catch (MessagingException e) {
+                log.debug("IMAP IDLE refresh for user {} failed: {}", user.getUsername(), e.getMessage());
+            }
+        }
+
+        void stop() {
+            stopped = true;
+            disconnect();
+        }
+
+        private void disconnect() {
+            connected = false;
+            try {
+                if (store != null) {
+                    store.close();
+                }
+            } catch (MessagingException e) {
+                log.debug("Error closing IMAP IDLE connection for user {}: {}", user.getUsername(), e.getMessage());
+            }
+        }
+    }
+}
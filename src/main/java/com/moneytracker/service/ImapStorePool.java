@@ -0,0 +1,258 @@
+package com.moneytracker.service;
+
+import com.moneytracker.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Store;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.pool2.BaseKeyedPooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyed pool of connected IMAP stores, one key per mailbox account.
+ * Stores are checked with a NOOP before reuse and closed after sitting idle. Every pooled
+ * connection to an IMAP host, borrowed or idle, holds one of that host's permits for as long as
+ * it is open, so polling many users of the same provider does not trip its connection limits.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImapStorePool {
+
+    public static final int DEFAULT_IMAP_PORT = 993;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${email.imap.pool.max-per-account:2}")
+    private int maxPerAccount;
+
+    @Value("${email.imap.pool.max-total:50}")
+    private int maxTotal;
+
+    @Value("${email.imap.pool.max-per-host:10}")
+    private int maxPerHost;
+
+    @Value("${email.imap.pool.max-wait-ms:30000}")
+    private long maxWaitMs;
+
+    @Value("${email.imap.pool.idle-timeout-ms:300000}")
+    private long idleTimeoutMs;
+
+    @Value("${email.imap.pool.eviction-interval-ms:60000}")
+    private long evictionIntervalMs;
+
+    @Value("${email.imap.timeout-ms:20000}")
+    private long timeoutMs;
+
+    // Hosts whose certificates are accepted without validation ("*" for all); empty in production
+    @Value("${email.imap.ssl.trust:}")
+    private String sslTrust;
+
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private GenericKeyedObjectPool<ImapAccount, Store> pool;
+    private Timer acquireTimer;
+
+    @PostConstruct
+    void init() {
+        GenericKeyedObjectPoolConfig<Store> config = new GenericKeyedObjectPoolConfig<>();
+        config.setMaxTotalPerKey(maxPerAccount);
+        config.setMaxIdlePerKey(maxPerAccount);
+        config.setMaxTotal(maxTotal);
+        config.setMaxWait(Duration.ofMillis(maxWaitMs));
+        config.setTestOnBorrow(true);
+        config.setMinEvictableIdleDuration(Duration.ofMillis(idleTimeoutMs));
+        config.setTimeBetweenEvictionRuns(Duration.ofMillis(evictionIntervalMs));
+        config.setJmxEnabled(false);
+        pool = new GenericKeyedObjectPool<>(new StoreFactory(), config);
+
+        acquireTimer = meterRegistry.timer("email.imap.pool.acquire");
+        meterRegistry.gauge("email.imap.pool.active", pool, GenericKeyedObjectPool::getNumActive);
+        meterRegistry.gauge("email.imap.pool.idle", pool, GenericKeyedObjectPool::getNumIdle);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.close();
+    }
+
+    /**
+     * Borrows a connected store for the user's mailbox. Close the lease to hand it back;
+     * call {@link Lease#invalidate()} first if the connection misbehaved.
+     */
+    public Lease borrow(User user) throws MessagingException {
+        ImapAccount account = accountOf(user);
+
+        long startedAt = System.nanoTime();
+        try {
+            Store store = pool.borrowObject(account);
+            return new Lease(account, store);
+        } catch (MessagingException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MessagingException("Could not connect to " + account.host(), e);
+        } finally {
+            acquireTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Opens a store outside the pool and the per-host cap, for connections held open for a
+     * long time (IMAP IDLE) that would otherwise starve short syncs. The read timeout must
+     * exceed the longest expected silence on the connection. The caller closes the store.
+     */
+    public Store connectUnpooled(User user, long readTimeoutMs) throws MessagingException {
+        return openStore(accountOf(user), readTimeoutMs);
+    }
+
+    private static ImapAccount accountOf(User user) {
+        return new ImapAccount(
+                user.getEmailImapHost(),
+                user.getEmailImapPort() != null ? user.getEmailImapPort() : DEFAULT_IMAP_PORT,
+                user.getEmailImapUsername(),
+                user.getEmailImapPassword());
+    }
+
+    private Store openStore(ImapAccount account, long readTimeoutMs) throws MessagingException {
+        Properties props = new Properties();
+        props.put("mail.store.protocol", "imaps");
+        props.put("mail.imaps.host", account.host());
+        props.put("mail.imaps.port", String.valueOf(account.port()));
+        props.put("mail.imaps.ssl.enable", "true");
+        props.put("mail.imaps.connectiontimeout", String.valueOf(timeoutMs));
+        props.put("mail.imaps.timeout", String.valueOf(readTimeoutMs));
+        if (!sslTrust.isBlank()) {
+            props.put("mail.imaps.ssl.trust", sslTrust);
+        }
+
+        Session session = Session.getInstance(props);
+        Store store = session.getStore("imaps");
+        store.connect(account.host(), account.port(), account.username(), account.password());
+        log.debug("Opened IMAP connection for {}", account);
+        return store;
+    }
+
+    /**
+     * A borrowed store; returns it to the pool (or discards it) when closed
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final ImapAccount account;
+        private final Store store;
+        private boolean broken;
+
+        private Lease(ImapAccount account, Store store) {
+            this.account = account;
+            this.store = store;
+        }
+
+        public Store store() {
+            return store;
+        }
+
+        public void invalidate() {
+            broken = true;
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (broken) {
+                    pool.invalidateObject(account, store);
+                } else {
+                    pool.returnObject(account, store);
+                }
+            } catch (Exception e) {
+                log.warn("Could not return IMAP connection for {}: {}", account, e.getMessage());
+            }
+        }
+    }
+
+    private class StoreFactory extends BaseKeyedPooledObjectFactory<ImapAccount, Store> {
+
+        // A new connection takes a host permit, which it holds until destroyObject closes it
+        @Override
+        public Store create(ImapAccount account) throws MessagingException {
+            Semaphore permits = permitsFor(account);
+            acquirePermit(account, permits);
+            try {
+                return openStore(account, timeoutMs);
+            } catch (MessagingException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public PooledObject<Store> wrap(Store store) {
+            return new DefaultPooledObject<>(store);
+        }
+
+        // IMAPStore.isConnected() pings the server with a NOOP
+        @Override
+        public boolean validateObject(ImapAccount account, PooledObject<Store> pooled) {
+            return pooled.getObject().isConnected();
+        }
+
+        @Override
+        public void destroyObject(ImapAccount account, PooledObject<Store> pooled) {
+            try {
+                pooled.getObject().close();
+            } catch (MessagingException e) {
+                log.debug("Error closing IMAP connection for {}: {}", account, e.getMessage());
+            } finally {
+                permitsFor(account).release();
+            }
+        }
+    }
+
+    private Semaphore permitsFor(ImapAccount account) {
+        return hostPermits.computeIfAbsent(account.host().toLowerCase(), host -> new Semaphore(maxPerHost));
+    }
+
+    // When the host is at its cap, idle connections of other accounts are closed to make room
+    // before waiting for a borrowed one to be discarded
+    private void acquirePermit(ImapAccount account, Semaphore permits) throws MessagingException {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        for (ImapAccount other : pool.getKeys()) {
+            if (!other.equals(account) && other.host().equalsIgnoreCase(account.host())) {
+                pool.clear(other);
+            }
+        }
+        try {
+            if (!permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("Too many open connections to " + account.host());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted waiting for " + account.host(), e);
+        }
+    }
+
+    // The password is part of the key so changed credentials never reuse an old login
+    private record ImapAccount(String host, int port, String username, String password) {
+
+        @Override
+        public String toString() {
+            return username + "@" + host + ":" + port;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.moneytracker.service;
+
+import com.moneytracker.model.AnalyticsBatchPartition;
+import com.moneytracker.model.BatchPartitionStatus;
+import com.moneytracker.repository.AnalyticsBatchFailureRepository;
+import com.moneytracker.repository.AnalyticsBatchPartitionRepository;
+import com.moneytracker.repository.UserRepository;
+import com.moneytracker.service.MonthlyAnalyticsService.MonthlyTotals;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Generates monthly analytics for every user.
+ * A run is split into user id partitions stored in analytics_batch_partitions. Workers on a
+ * bounded pool (on any number of nodes) claim partitions with SKIP LOCKED, then lock, compute
+ * and upsert users' months in batches, checkpointing after every batch. A partition whose
+ * lease expires, e.g. because its node died, is picked up again from its checkpoint. Users whose
+ * calculation fails are recorded in analytics_batch_failures and retried by later claims.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MonthlyAnalyticsBatchService {
+
+    private final AnalyticsBatchPartitionRepository partitionRepository;
+    private final AnalyticsBatchFailureRepository failureRepository;
+    private final UserRepository userRepository;
+    private final MonthlyAnalyticsService analyticsService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${analytics.batch.partition-size:1000}")
+    private int partitionSize;
+
+    @Value("${analytics.batch.upsert-batch-size:100}")
+    private int upsertBatchSize;
+
+    @Value("${analytics.batch.workers:4}")
+    private int workerCount;
+
+    @Value("${analytics.batch.lease-minutes:10}")
+    private long leaseMinutes;
+
+    // Attempts per user, the first one included, before a failing user is given up on
+    @Value("${analytics.batch.max-user-attempts:3}")
+    private int maxUserAttempts;
+
+    @Value("${analytics.batch.node-id:}")
+    private String configuredNodeId;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private ExecutorService workers;
+    private String nodeId;
+
+    @PostConstruct
+    void init() {
+        nodeId = configuredNodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : configuredNodeId;
+        workers = Executors.newFixedThreadPool(workerCount, new CustomizableThreadFactory("analytics-batch-"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    @Scheduled(cron = "0 0 2 1 * *") // First day of month at 2 AM
+    public void generateMonthlyReportsForAllUsers() {
+        YearMonth lastMonth = YearMonth.now().minusMonths(1);
+        planPartitions(lastMonth);
+        runPartitions(lastMonth);
+    }
+
+    /**
+     * Finishes runs left behind by a crash or a node that stopped mid-partition
+     */
+    @Scheduled(fixedDelayString = "${analytics.batch.resume-interval-ms:900000}",
+               initialDelayString = "${analytics.batch.resume-initial-delay-ms:60000}")
+    public void resumeUnfinishedRuns() {
+        for (String yearMonth : partitionRepository.findUnfinishedYearMonths()) {
+            runPartitions(YearMonth.parse(yearMonth));
+        }
+    }
+
+    private void planPartitions(YearMonth yearMonth) {
+        Long maxUserId = userRepository.findMaxUserId();
+        if (maxUserId == null) {
+            return;
+        }
+
+        String yearMonthStr = format(yearMonth);
+        transactionTemplate.executeWithoutResult(status -> {
+            for (long fromId = 0; fromId <= maxUserId; fromId += partitionSize) {
+                partitionRepository.insertIfAbsent(yearMonthStr, fromId, fromId + partitionSize);
+            }
+        });
+    }
+
+    private void runPartitions(YearMonth yearMonth) {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Monthly analytics batch already running on this node, skipping {}", yearMonth);
+            return;
+        }
+
+        try {
+            long startedAt = System.nanoTime();
+
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < workerCount; i++) {
+                results.add(workers.submit(() -> processPartitions(yearMonth)));
+            }
+
+            int users = 0;
+            for (Future<Integer> result : results) {
+                try {
+                    users += result.get();
+                } catch (ExecutionException e) {
+                    log.error("Monthly analytics worker failed for {}", yearMonth, e.getCause());
+                }
+            }
+
+            long elapsedNanos = System.nanoTime() - startedAt;
+            double seconds = Math.max(elapsedNanos / 1_000_000_000.0, 0.001);
+            double usersPerSecond = users / seconds;
+
+            meterRegistry.timer("analytics.monthly.batch.duration").record(elapsedNanos, TimeUnit.NANOSECONDS);
+            meterRegistry.counter("analytics.monthly.batch.users").increment(users);
+            meterRegistry.summary("analytics.monthly.batch.throughput").record(usersPerSecond);
+            log.info("Monthly analytics for {}: {} users in {} ms ({} users/sec) on {}",
+                    yearMonth, users, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    String.format("%.1f", usersPerSecond), nodeId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Monthly analytics batch for {} interrupted", yearMonth);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Worker loop: claim, process, repeat until no claimable partition is left
+    private int processPartitions(YearMonth yearMonth) {
+        int users = 0;
+        AnalyticsBatchPartition partition;
+        while (!Thread.currentThread().isInterrupted()
+                && (partition = transactionTemplate.execute(status -> claimNext(yearMonth))) != null) {
+            users += processPartition(partition, yearMonth);
+        }
+        return users;
+    }
+
+    private AnalyticsBatchPartition claimNext(YearMonth yearMonth) {
+        LocalDateTime now = LocalDateTime.now();
+        return partitionRepository.lockNextClaimable(format(yearMonth), now.minusMinutes(leaseMinutes))
+                .map(partition -> {
+                    if (partition.getStatus() == BatchPartitionStatus.RUNNING) {
+                        log.warn("Reclaiming analytics partition {} from {} (lease expired)",
+                                partition.getId(), partition.getClaimedBy());
+                    }
+                    partition.setStatus(BatchPartitionStatus.RUNNING);
+                    partition.setClaimedBy(nodeId);
+                    partition.setClaimToken(UUID.randomUUID().toString());
+                    partition.setClaimedAt(now);
+                    return partition;
+                })
+                .orElse(null);
+    }
+
+    private int processPartition(AnalyticsBatchPartition partition, YearMonth yearMonth) {
+        // Users that failed under an earlier claim come first; their ids are all below the checkpoint
+        List<Long> userIds = new ArrayList<>(
+                failureRepository.findRetryableUserIds(partition.getId(), maxUserAttempts));
+        long fromId = partition.getLastUserId() != null ? partition.getLastUserId() + 1 : partition.getFromUserId();
+        userIds.addAll(userRepository.findActiveUserIdsInRange(fromId, partition.getToUserId()));
+
+        int processed = 0;
+        Long checkpointed = partition.getLastUserId();
+        Long lastUserId = checkpointed;
+        List<Long> batch = new ArrayList<>();
+        for (Long userId : userIds) {
+            batch.add(userId);
+            if (lastUserId == null || userId > lastUserId) {
+                lastUserId = userId;
+            }
+
+            if (batch.size() >= upsertBatchSize) {
+                Integer written = checkpoint(partition, yearMonth, batch, checkpointed, lastUserId);
+                if (written == null) {
+                    return processed;
+                }
+                processed += written;
+                checkpointed = lastUserId;
+                batch.clear();
+            }
+        }
+
+        Integer written = checkpoint(partition, yearMonth, batch, checkpointed, lastUserId);
+        if (written == null) {
+            return processed;
+        }
+        processed += written;
+
+        // Stays RUNNING until its lease lapses, then the next claim retries the failed users
+        int retryable = failureRepository.findRetryableUserIds(partition.getId(), maxUserAttempts).size();
+        if (retryable > 0) {
+            log.warn("Analytics partition {} has {} failed users; retrying them once its lease expires",
+                    partition.getId(), retryable);
+            return processed;
+        }
+
+        Integer done = transactionTemplate.execute(status ->
+                partitionRepository.markDone(partition.getId(), partition.getClaimToken(), LocalDateTime.now()));
+        if (done == null || done == 0) {
+            log.warn("Lost lease on analytics partition {} before completing it", partition.getId());
+        }
+        return processed;
+    }
+
+    /**
+     * Computes and writes the batch under its users' row locks (see
+     * MonthlyAnalyticsService.lockMonths) and moves the checkpoint atomically, fenced by the
+     * claim token. A failing user rolls back the whole batch, which is then redone one user per
+     * transaction so that only that user is recorded as failed. Returns the users written, or
+     * null if the partition was claimed again meanwhile.
+     */
+    private Integer checkpoint(AnalyticsBatchPartition partition, YearMonth yearMonth, List<Long> userIds,
+                               Long fromUserId, Long lastUserId) {
+        try {
+            return writeBatch(partition, yearMonth, userIds, lastUserId);
+        } catch (RuntimeException e) {
+            if (userIds.size() > 1) {
+                int written = 0;
+                for (Long userId : userIds) {
+                    // Retried users lie below the checkpoint and must not move it back
+                    Long checkpoint = fromUserId == null || userId > fromUserId ? userId : fromUserId;
+                    Integer one = checkpoint(partition, yearMonth, List.of(userId), fromUserId, checkpoint);
+                    if (one == null) {
+                        return null;
+                    }
+                    written += one;
+                }
+                return written;
+            }
+
+            Long userId = userIds.get(0);
+            meterRegistry.counter("analytics.monthly.batch.failures").increment();
+            log.error("Monthly analytics failed for user {} ({})", userId, yearMonth, e);
+            String error = String.valueOf(e.getMessage());
+            return recordFailure(partition, userId, error.length() > 1000 ? error.substring(0, 1000) : error,
+                    lastUserId) ? 0 : null;
+        }
+    }
+
+    private Integer writeBatch(AnalyticsBatchPartition partition, YearMonth yearMonth, List<Long> userIds,
+                               Long lastUserId) {
+        Integer written = transactionTemplate.execute(status -> {
+            analyticsService.lockMonths(userIds, yearMonth);
+            List<MonthlyTotals> rows = new ArrayList<>(userIds.size());
+            for (Long userId : userIds) {
+                rows.add(analyticsService.calculateMonthlyTotals(userId, yearMonth));
+            }
+
+            int updated = partitionRepository.recordProgress(
+                    partition.getId(), partition.getClaimToken(), lastUserId, rows.size(), LocalDateTime.now());
+            if (updated == 0) {
+                status.setRollbackOnly();
+                return null;
+            }
+            analyticsService.upsertMonthlyTotals(rows);
+            if (!rows.isEmpty()) {
+                failureRepository.deleteByPartitionIdAndUserIds(partition.getId(), userIds);
+            }
+            return rows.size();
+        });
+
+        if (written == null) {
+            log.warn("Lost lease on analytics partition {}, leaving it to its new owner", partition.getId());
+        }
+        return written;
+    }
+
+    private boolean recordFailure(AnalyticsBatchPartition partition, Long userId, String error, Long lastUserId) {
+        Boolean kept = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (partitionRepository.recordProgress(partition.getId(), partition.getClaimToken(), lastUserId, 0, now) == 0) {
+                return false;
+            }
+            failureRepository.recordFailure(partition.getId(), userId, error, now);
+            return true;
+        });
+
+        if (!Boolean.TRUE.equals(kept)) {
+            log.warn("Lost lease on analytics partition {}, leaving it to its new owner", partition.getId());
+            return false;
+        }
+        return true;
+    }
+
+    private static String format(YearMonth yearMonth) {
+        return yearMonth.format(DateTimeFormatter.ofPattern("yyyy-MM"));
+    }
+}
@@ -1,15 +1,26 @@
 package com.moneytracker.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.moneytracker.dto.MonthlyAnalyticsDTO;
+import com.moneytracker.event.CategoryRenamedEvent;
+import com.moneytracker.event.SpendingChangedEvent;
+import com.moneytracker.event.SpendingDelta;
 import com.moneytracker.model.MonthlyAnalytics;
-import com.moneytracker.model.Transaction;
+import com.moneytracker.model.PaymentMethod;
 import com.moneytracker.model.User;
 import com.moneytracker.repository.MonthlyAnalyticsRepository;
 import com.moneytracker.repository.TransactionRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -23,98 +34,293 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class MonthlyAnalyticsService {
 
+    // One statement per user/month whether the row exists or not; batched by the JDBC driver
+    private static final String UPSERT_SQL =
+            "INSERT INTO monthly_analytics (user_id, year_month_val, total_income, total_expenses, " +
+            "transaction_count, top_category, top_category_amount, avg_transaction_amount, " +
+            "category_breakdown, payment_method_breakdown, created_at, updated_at) " +
+            "VALUES (?, ?, 0, ?, ?, ?, ?, ?, CAST(? AS jsonb), CAST(? AS jsonb), now(), now()) " +
+            "ON CONFLICT (user_id, year_month_val) DO UPDATE SET " +
+            "total_expenses = EXCLUDED.total_expenses, " +
+            "transaction_count = EXCLUDED.transaction_count, " +
+            "top_category = EXCLUDED.top_category, " +
+            "top_category_amount = EXCLUDED.top_category_amount, " +
+            "avg_transaction_amount = EXCLUDED.avg_transaction_amount, " +
+            "category_breakdown = EXCLUDED.category_breakdown, " +
+            "payment_method_breakdown = EXCLUDED.payment_method_breakdown, " +
+            "updated_at = EXCLUDED.updated_at";
+
+    // NULL breakdowns mark a row that still has to be computed from the transactions table
+    private static final String INSERT_PLACEHOLDER_SQL =
+            "INSERT INTO monthly_analytics (user_id, year_month_val, total_income, total_expenses, " +
+            "transaction_count, created_at, updated_at) VALUES (?, ?, 0, 0, 0, now(), now()) " +
+            "ON CONFLICT (user_id, year_month_val) DO NOTHING";
+
+    // Locks in user id order, the order every writer takes user/month rows in
+    private static final String LOCK_MONTHS_SQL =
+            "SELECT id FROM monthly_analytics WHERE year_month_val = ? AND user_id = ANY(?) " +
+            "ORDER BY user_id FOR UPDATE";
+
+    // Category names key the breakdowns; locked in month order before they are cleared
+    private static final String CLEAR_BREAKDOWNS_SQL =
+            "UPDATE monthly_analytics SET category_breakdown = NULL, payment_method_breakdown = NULL, " +
+            "top_category = CASE WHEN top_category = ? THEN ? ELSE top_category END, updated_at = now() " +
+            "WHERE id IN (SELECT id FROM monthly_analytics WHERE user_id = ? ORDER BY year_month_val FOR UPDATE)";
+
     private final MonthlyAnalyticsRepository analyticsRepository;
     private final TransactionRepository transactionRepository;
     private final EmailService emailService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
 
     @Transactional
     public MonthlyAnalyticsDTO generateMonthlyAnalytics(User user, YearMonth yearMonth) {
-        String yearMonthStr = yearMonth.format(DateTimeFormatter.ofPattern("yyyy-MM"));
-
-        MonthlyAnalytics analytics = analyticsRepository
-                .findByUserIdAndYearMonth(user.getId(), yearMonthStr)
-                .orElseGet(() -> {
-                    MonthlyAnalytics newAnalytics = new MonthlyAnalytics();
-                    newAnalytics.setUser(user);
-                    newAnalytics.setYearMonth(yearMonthStr);
-                    return newAnalytics;
-                });
+        lockMonth(user.getId(), format(yearMonth));
+        MonthlyTotals totals = calculateMonthlyTotals(user.getId(), yearMonth);
+        upsertMonthlyTotals(List.of(totals));
+        return convertToDTO(totals);
+    }
 
+    /**
+     * Computes one user's analytics for a month without writing anything
+     */
+    @Transactional(readOnly = true)
+    public MonthlyTotals calculateMonthlyTotals(Long userId, YearMonth yearMonth) {
         LocalDate startDate = yearMonth.atDay(1);
         LocalDate endDate = yearMonth.atEndOfMonth();
 
-        List<Transaction> transactions = transactionRepository
-                .findUserTransactionsInDateRange(user.getId(), startDate, endDate);
+        // One row per (category, payment method) with its sum and count, aggregated by the database
+        List<Object[]> rows = transactionRepository
+                .getUserSpendingByCategoryAndPaymentMethod(userId, startDate, endDate);
 
-        // Calculate metrics
-        BigDecimal totalExpenses = transactions.stream()
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal totalExpenses = BigDecimal.ZERO;
+        int transactionCount = 0;
+        Map<String, BigDecimal> categoryMap = new HashMap<>();
+        Map<String, BigDecimal> paymentMap = new HashMap<>();
+        for (Object[] row : rows) {
+            String categoryName = (String) row[0];
+            PaymentMethod paymentMethod = (PaymentMethod) row[1];
+            BigDecimal amount = (BigDecimal) row[2];
+            int count = ((Long) row[3]).intValue();
 
-        analytics.setTotalExpenses(totalExpenses);
-        analytics.setTransactionCount(transactions.size());
-        analytics.setAvgTransactionAmount(
-                transactions.isEmpty() ? BigDecimal.ZERO :
-                        totalExpenses.divide(BigDecimal.valueOf(transactions.size()), 2, RoundingMode.HALF_UP)
-        );
+            totalExpenses = totalExpenses.add(amount);
+            transactionCount += count;
+            categoryMap.merge(categoryName, amount, BigDecimal::add);
+            paymentMap.merge(paymentMethod.getDisplayName(), amount, BigDecimal::add);
+        }
 
-        // Category breakdown
-        Map<String, BigDecimal> categoryMap = transactions.stream()
-                .collect(Collectors.groupingBy(
-                        t -> t.getCategory().getName(),
-                        Collectors.reducing(BigDecimal.ZERO, Transaction::getAmount, BigDecimal::add)
-                ));
+        BigDecimal avgTransactionAmount = transactionCount == 0 ? BigDecimal.ZERO :
+                totalExpenses.divide(BigDecimal.valueOf(transactionCount), 2, RoundingMode.HALF_UP);
 
         // Find top category
         Optional<Map.Entry<String, BigDecimal>> topEntry = categoryMap.entrySet().stream()
                 .max(Map.Entry.comparingByValue());
-        topEntry.ifPresent(entry -> {
-            analytics.setTopCategory(entry.getKey());
-            analytics.setTopCategoryAmount(entry.getValue());
+
+        return new MonthlyTotals(
+                userId,
+                format(yearMonth),
+                totalExpenses,
+                transactionCount,
+                avgTransactionAmount,
+                topEntry.map(Map.Entry::getKey).orElse(null),
+                topEntry.map(Map.Entry::getValue).orElse(BigDecimal.ZERO),
+                categoryMap,
+                paymentMap
+        );
+    }
+
+    /**
+     * Writes many user/month rows in one JDBC batch, inserting or replacing each
+     */
+    @Transactional
+    public void upsertMonthlyTotals(List<MonthlyTotals> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.userId());
+            ps.setString(2, row.yearMonth());
+            ps.setBigDecimal(3, row.totalExpenses());
+            ps.setInt(4, row.transactionCount());
+            ps.setString(5, row.topCategory());
+            ps.setBigDecimal(6, row.topCategoryAmount());
+            ps.setBigDecimal(7, row.avgTransactionAmount());
+            ps.setString(8, convertToJson(row.categoryBreakdown()));
+            ps.setString(9, convertToJson(row.paymentMethodBreakdown()));
+        });
+    }
+
+    /**
+     * Locks the users' rows for a month, creating missing ones, so that a recompute of those
+     * rows in the caller's transaction cannot be overwritten by, or overwrite, an incremental
+     * write that commits meanwhile. Must run inside the transaction that writes the rows.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lockMonths(List<Long> userIds, YearMonth yearMonth) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        String yearMonthStr = format(yearMonth);
+        List<Long> sorted = userIds.stream().sorted().distinct().toList();
+        jdbcTemplate.batchUpdate(INSERT_PLACEHOLDER_SQL, sorted, sorted.size(), (ps, userId) -> {
+            ps.setLong(1, userId);
+            ps.setString(2, yearMonthStr);
         });
+        jdbcTemplate.query(LOCK_MONTHS_SQL, ps -> {
+            ps.setString(1, yearMonthStr);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", sorted.toArray()));
+        }, rs -> {
+        });
+    }
+
+    /**
+     * Keeps monthly analytics current as transactions change. Deltas are buffered for the
+     * rest of the writer's transaction and applied once per user/month just before it
+     * commits, so a bulk import costs one analytics write per month it touches.
+     */
+    @EventListener
+    public void onSpendingChanged(SpendingChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            PendingMonthChanges changes = new PendingMonthChanges();
+            changes.add(event);
+            transactionTemplate.executeWithoutResult(status -> changes.apply());
+            return;
+        }
+
+        PendingMonthChanges pending = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(PendingMonthChanges.class::isInstance)
+                .map(PendingMonthChanges.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    PendingMonthChanges changes = new PendingMonthChanges();
+                    TransactionSynchronizationManager.registerSynchronization(changes);
+                    return changes;
+                });
+        pending.add(event);
+    }
+
+    /**
+     * Breakdowns are keyed by category name, so a rename leaves deltas for older transactions
+     * nowhere to land. The user's breakdowns are cleared in the renaming transaction and rebuilt
+     * from the transactions table by the next write to each month.
+     */
+    @EventListener
+    public void onCategoryRenamed(CategoryRenamedEvent event) {
+        jdbcTemplate.update(CLEAR_BREAKDOWNS_SQL, event.oldName(), event.newName(), event.userId());
+    }
+
+    private void applyMonthChanges(Long userId, YearMonth yearMonth, MonthChanges changes) {
+        String yearMonthStr = format(yearMonth);
+        MonthlyAnalytics analytics = lockMonth(userId, yearMonthStr);
+
+        if (analytics.getCategoryBreakdown() == null || analytics.getPaymentMethodBreakdown() == null) {
+            // Nothing to build on yet: compute the month once from the transactions table, under the row lock
+            upsertMonthlyTotals(List.of(calculateMonthlyTotals(userId, yearMonth)));
+            return;
+        }
+
+        Map<String, BigDecimal> categoryMap = new HashMap<>(analytics.getCategoryBreakdown());
+        Map<String, BigDecimal> paymentMap = new HashMap<>(analytics.getPaymentMethodBreakdown());
+        applyBreakdownChanges(categoryMap, changes.categoryAmounts);
+        applyBreakdownChanges(paymentMap, changes.paymentAmounts);
+
+        BigDecimal totalExpenses = analytics.getTotalExpenses().add(changes.amount);
+        int transactionCount = Math.max(analytics.getTransactionCount() + changes.count, 0);
+        BigDecimal avgTransactionAmount = transactionCount == 0 ? BigDecimal.ZERO :
+                totalExpenses.divide(BigDecimal.valueOf(transactionCount), 2, RoundingMode.HALF_UP);
 
-        analytics.setCategoryBreakdown(convertMapToJson(categoryMap));
+        Optional<Map.Entry<String, BigDecimal>> topEntry = categoryMap.entrySet().stream()
+                .max(Map.Entry.comparingByValue());
+
+        upsertMonthlyTotals(List.of(new MonthlyTotals(
+                userId,
+                yearMonthStr,
+                totalExpenses,
+                transactionCount,
+                avgTransactionAmount,
+                topEntry.map(Map.Entry::getKey).orElse(null),
+                topEntry.map(Map.Entry::getValue).orElse(BigDecimal.ZERO),
+                categoryMap,
+                paymentMap
+        )));
+    }
 
-        // Payment method breakdown
-        Map<String, BigDecimal> paymentMap = transactions.stream()
-                .collect(Collectors.groupingBy(
-                        t -> t.getPaymentMethod().getDisplayName(),
-                        Collectors.reducing(BigDecimal.ZERO, Transaction::getAmount, BigDecimal::add)
-                ));
-        analytics.setPaymentMethodBreakdown(convertMapToJson(paymentMap));
+    // The row must exist before it can be locked. A concurrent first writer's insert makes this
+    // one wait for it to commit, after which the row is built on instead of replaced
+    private MonthlyAnalytics lockMonth(Long userId, String yearMonth) {
+        jdbcTemplate.update(INSERT_PLACEHOLDER_SQL, userId, yearMonth);
+        return analyticsRepository.findForUpdate(userId, yearMonth).orElseThrow();
+    }
 
-        MonthlyAnalytics saved = analyticsRepository.save(analytics);
-        return convertToDTO(saved, categoryMap, paymentMap);
+    private static String format(YearMonth yearMonth) {
+        return yearMonth.format(DateTimeFormatter.ofPattern("yyyy-MM"));
     }
 
-    @Scheduled(cron = "0 0 2 1 * *") // First day of month at 2 AM
-    public void generateMonthlyReportsForAllUsers() {
-        YearMonth lastMonth = YearMonth.now().minusMonths(1);
-        // This would iterate through all users - simplified for example
-        // In production, you'd fetch all users and generate reports
+    // Breakdown entries disappear once nothing is left in them
+    private static void applyBreakdownChanges(Map<String, BigDecimal> breakdown, Map<String, BigDecimal> changes) {
+        changes.forEach((name, delta) -> {
+            if (delta.signum() != 0) {
+                breakdown.merge(name, delta, (current, change) -> {
+                    BigDecimal sum = current.add(change);
+                    return sum.signum() == 0 ? null : sum;
+                });
+            }
+        });
     }
 
     public List<MonthlyAnalyticsDTO> getUserMonthlyAnalytics(Long userId, int months) {
-        return analyticsRepository.findTop12ByUserIdOrderByYearMonthDesc(userId).stream()
-                .limit(months)
+        if (months < 1) {
+            throw new IllegalArgumentException("Months must be at least 1");
+        }
+        return analyticsRepository.findByUserIdOrderByYearMonthDesc(userId, PageRequest.of(0, months)).stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
-    private String convertMapToJson(Map<String, BigDecimal> map) {
-        // Simple JSON conversion - in production use Jackson
-        return map.entrySet().stream()
-                .map(e -> String.format("\\\"%s\\\":%.2f", e.getKey(), e.getValue()))
-                .collect(Collectors.joining(",", "{", "}"));
+    /**
+     * Months in which the user spent more than the given amount in one category, newest first
+     */
+    @Transactional(readOnly = true)
+    public List<MonthlyAnalyticsDTO> getMonthsWithCategorySpendingAbove(Long userId, String categoryName,
+                                                                        BigDecimal amount) {
+        if (categoryName == null || categoryName.isBlank()) {
+            throw new IllegalArgumentException("Category is required");
+        }
+        if (amount == null || amount.signum() < 0) {
+            throw new IllegalArgumentException("Amount must be zero or positive");
+        }
+
+        // The category name is quoted as a JSON string, which is also a valid jsonpath key literal
+        String predicate = "$." + convertToJson(categoryName) + " > " + amount.toPlainString();
+        return analyticsRepository.findByUserIdMatchingCategoryPredicate(userId, predicate).stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
     }
 
-    private MonthlyAnalyticsDTO convertToDTO(MonthlyAnalytics analytics) {
-        return convertToDTO(analytics, null, null);
+    private String convertToJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize analytics value", e);
+        }
+    }
+
+    private MonthlyAnalyticsDTO convertToDTO(MonthlyTotals totals) {
+        MonthlyAnalyticsDTO dto = new MonthlyAnalyticsDTO();
+        dto.setYearMonth(totals.yearMonth());
+        dto.setTotalIncome(BigDecimal.ZERO);
+        dto.setTotalExpenses(totals.totalExpenses());
+        dto.setTransactionCount(totals.transactionCount());
+        dto.setTopCategory(totals.topCategory());
+        dto.setTopCategoryAmount(totals.topCategoryAmount());
+        dto.setAvgTransactionAmount(totals.avgTransactionAmount());
+        dto.setCategoryBreakdown(totals.categoryBreakdown());
+        dto.setPaymentMethodBreakdown(totals.paymentMethodBreakdown());
+        return dto;
     }
 
-    private MonthlyAnalyticsDTO convertToDTO(MonthlyAnalytics analytics,
-                                             Map<String, BigDecimal> categoryMap,
-                                             Map<String, BigDecimal> paymentMap) {
+    private MonthlyAnalyticsDTO convertToDTO(MonthlyAnalytics analytics) {
         MonthlyAnalyticsDTO dto = new MonthlyAnalyticsDTO();
         dto.setYearMonth(analytics.getYearMonth());
         dto.setTotalExpenses(analytics.getTotalExpenses());
@@ -122,8 +328,66 @@ public class MonthlyAnalyticsService {
         dto.setTopCategory(analytics.getTopCategory());
         dto.setTopCategoryAmount(analytics.getTopCategoryAmount());
         dto.setAvgTransactionAmount(analytics.getAvgTransactionAmount());
-        dto.setCategoryBreakdown(categoryMap);
-        dto.setPaymentMethodBreakdown(paymentMap);
+        dto.setCategoryBreakdown(analytics.getCategoryBreakdown());
+        dto.setPaymentMethodBreakdown(analytics.getPaymentMethodBreakdown());
         return dto;
     }
+
+    /**
+     * Spending deltas collected during one transaction, grouped by user and month. Applied in
+     * (user, month) order so that writers touching overlapping months cannot deadlock.
+     */
+    private class PendingMonthChanges implements TransactionSynchronization {
+
+        private final Map<UserMonth, MonthChanges> byMonth = new TreeMap<>(
+                Comparator.comparing(UserMonth::userId).thenComparing(UserMonth::yearMonth));
+
+        void add(SpendingChangedEvent event) {
+            for (SpendingDelta delta : event.deltas()) {
+                UserMonth key = new UserMonth(event.userId(), YearMonth.from(delta.date()));
+                byMonth.computeIfAbsent(key, k -> new MonthChanges()).add(delta);
+            }
+        }
+
+        void apply() {
+            byMonth.forEach((key, changes) -> applyMonthChanges(key.userId(), key.yearMonth(), changes));
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            apply();
+        }
+    }
+
+    private record UserMonth(Long userId, YearMonth yearMonth) {
+    }
+
+    private static class MonthChanges {
+
+        private final Map<String, BigDecimal> categoryAmounts = new HashMap<>();
+        private final Map<String, BigDecimal> paymentAmounts = new HashMap<>();
+        private BigDecimal amount = BigDecimal.ZERO;
+        private int count;
+
+        void add(SpendingDelta delta) {
+            categoryAmounts.merge(delta.categoryName(), delta.amount(), BigDecimal::add);
+            paymentAmounts.merge(delta.paymentMethod().getDisplayName(), delta.amount(), BigDecimal::add);
+            amount = amount.add(delta.amount());
+            count += delta.count();
+        }
+    }
+
+    /**
+     * A user's computed analytics for one month, ready to be upserted
+     */
+    public record MonthlyTotals(Long userId,
+                                String yearMonth,
+                                BigDecimal totalExpenses,
+                                int transactionCount,
+                                BigDecimal avgTransactionAmount,
+                                String topCategory,
+                                BigDecimal topCategoryAmount,
+                                Map<String, BigDecimal> categoryBreakdown,
+                                Map<String, BigDecimal> paymentMethodBreakdown) {
+    }
 }
@@ -0,0 +1,227 @@
+package com.moneytracker.service;
+
+import com.moneytracker.dto.TrendPointDTO;
+import com.moneytracker.event.SpendingChangedEvent;
+import com.moneytracker.event.SpendingDelta;
+import com.moneytracker.model.PaymentMethod;
+import com.moneytracker.model.RollupGranularity;
+import com.moneytracker.repository.SpendingRollupRepository;
+import com.moneytracker.repository.SpendingRollupStateRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Day, week, month and year spending rollups per user, category and payment method.
+ * Kept current from SpendingChangedEvent and built from the transactions table the first
+ * time a user's trend is read. A trend is answered from the coarsest buckets that fit
+ * inside the window, with finer buckets only at its edges, so its cost does not grow
+ * with the length of the user's history.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SpendingRollupService {
+
+    public static final int MAX_TREND_POINTS = 5000;
+
+    // Advisory lock namespace: writers hold it shared per user, a rebuild holds it exclusively
+    private static final int ROLLUP_LOCK_NAMESPACE = 7301;
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO spending_rollups (user_id, granularity, period_start, category_id, payment_method, " +
+            "total_amount, transaction_count) VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (user_id, granularity, period_start, category_id, payment_method) DO UPDATE SET " +
+            "total_amount = spending_rollups.total_amount + EXCLUDED.total_amount, " +
+            "transaction_count = spending_rollups.transaction_count + EXCLUDED.transaction_count";
+
+    private static final String REBUILD_SQL =
+            "INSERT INTO spending_rollups (user_id, granularity, period_start, category_id, payment_method, " +
+            "total_amount, transaction_count) " +
+            "SELECT user_id, ?, CAST(date_trunc(?, CAST(transaction_date AS timestamp)) AS date), " +
+            "category_id, payment_method, SUM(amount), COUNT(*) " +
+            "FROM transactions WHERE user_id = ? GROUP BY user_id, 3, category_id, payment_method";
+
+    private final SpendingRollupRepository rollupRepository;
+    private final SpendingRollupStateRepository stateRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Adds the deltas to every granularity, merged per bucket so one event is one JDBC batch.
+     * Users without rollups yet are skipped; their first read builds them from scratch.
+     */
+    @EventListener
+    public void onSpendingChanged(SpendingChangedEvent event) {
+        transactionTemplate.executeWithoutResult(status -> {
+            lockUser(event.userId(), false);
+            if (!stateRepository.existsById(event.userId())) {
+                return;
+            }
+
+            Map<RollupKey, RollupChange> changes = new LinkedHashMap<>();
+            for (SpendingDelta delta : event.deltas()) {
+                for (RollupGranularity granularity : RollupGranularity.values()) {
+                    RollupKey key = new RollupKey(granularity, granularity.periodStart(delta.date()),
+                            delta.categoryId(), delta.paymentMethod());
+                    changes.computeIfAbsent(key, k -> new RollupChange()).add(delta);
+                }
+            }
+
+            List<Map.Entry<RollupKey, RollupChange>> rows = new ArrayList<>(changes.entrySet());
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, row) -> {
+                ps.setLong(1, event.userId());
+                ps.setString(2, row.getKey().granularity().name());
+                ps.setObject(3, row.getKey().periodStart());
+                ps.setLong(4, row.getKey().categoryId());
+                ps.setString(5, row.getKey().paymentMethod().name());
+                ps.setBigDecimal(6, row.getValue().amount);
+                ps.setInt(7, row.getValue().count);
+            });
+        });
+    }
+
+    /**
+     * Spending per bucket of the given granularity between two dates (inclusive), including
+     * empty buckets. The first and last bucket are clipped to the window.
+     */
+    public List<TrendPointDTO> getSpendingTrend(Long userId, LocalDate from, LocalDate to,
+                                                RollupGranularity granularity,
+                                                Long categoryId, PaymentMethod paymentMethod) {
+        if (from == null || to == null || granularity == null) {
+            throw new IllegalArgumentException("From, to and granularity are required");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("From date must not be after to date");
+        }
+        long points = countBuckets(granularity, from, to);
+        if (points > MAX_TREND_POINTS) {
+            throw new IllegalArgumentException(
+                    "Trend would have " + points + " points; at most " + MAX_TREND_POINTS + " are allowed");
+        }
+
+        ensureRollups(userId);
+
+        // One output point per bucket, in order
+        Map<LocalDate, TrendPointDTO> trend = new LinkedHashMap<>();
+        for (LocalDate start = granularity.periodStart(from); !start.isAfter(to);
+             start = granularity.nextPeriodStart(start)) {
+            LocalDate end = granularity.nextPeriodStart(start).minusDays(1);
+            trend.put(start, new TrendPointDTO(
+                    start.isBefore(from) ? from : start,
+                    end.isAfter(to) ? to : end,
+                    BigDecimal.ZERO,
+                    0));
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        addSegments(segments, granularity, from, to);
+        for (Segment segment : segments) {
+            for (Object[] row : rollupRepository.sumByPeriod(userId, segment.granularity(),
+                    segment.fromStart(), segment.toStart(), categoryId, paymentMethod)) {
+                TrendPointDTO point = trend.get(granularity.periodStart((LocalDate) row[0]));
+                point.setTotalAmount(point.getTotalAmount().add((BigDecimal) row[1]));
+                point.setTransactionCount(point.getTransactionCount() + ((Long) row[2]).intValue());
+            }
+        }
+
+        return new ArrayList<>(trend.values());
+    }
+
+    /**
+     * Covers [from, to] with whole buckets of the given granularity where they fit and
+     * recurses into finer ones for the partial buckets at either end.
+     */
+    private void addSegments(List<Segment> segments, RollupGranularity granularity, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return;
+        }
+        if (granularity == RollupGranularity.DAY) {
+            segments.add(new Segment(granularity, from, to));
+            return;
+        }
+
+        LocalDate firstWhole = granularity.periodStart(from).equals(from)
+                ? from : granularity.nextPeriodStart(granularity.periodStart(from));
+        LocalDate lastStart = granularity.periodStart(to);
+        LocalDate afterWhole = granularity.nextPeriodStart(lastStart).equals(to.plusDays(1))
+                ? to.plusDays(1) : lastStart;
+
+        if (!firstWhole.isBefore(afterWhole)) {
+            addSegments(segments, granularity.finer(), from, to);
+            return;
+        }
+
+        addSegments(segments, granularity.finer(), from, firstWhole.minusDays(1));
+        segments.add(new Segment(granularity, firstWhole, granularity.periodStart(afterWhole.minusDays(1))));
+        addSegments(segments, granularity.finer(), afterWhole, to);
+    }
+
+    private long countBuckets(RollupGranularity granularity, LocalDate from, LocalDate to) {
+        LocalDate first = granularity.periodStart(from);
+        LocalDate last = granularity.periodStart(to);
+        return switch (granularity) {
+            case DAY -> ChronoUnit.DAYS.between(first, last) + 1;
+            case WEEK -> ChronoUnit.WEEKS.between(first, last) + 1;
+            case MONTH -> ChronoUnit.MONTHS.between(first, last) + 1;
+            case YEAR -> ChronoUnit.YEARS.between(first, last) + 1;
+        };
+    }
+
+    private void ensureRollups(Long userId) {
+        if (stateRepository.existsById(userId)) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            // Waits for in-flight writers, whose deltas are then part of what is summed below
+            lockUser(userId, true);
+            if (stateRepository.existsById(userId)) {
+                return;
+            }
+
+            jdbcTemplate.update("DELETE FROM spending_rollups WHERE user_id = ?", userId);
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                jdbcTemplate.update(REBUILD_SQL, granularity.name(), granularity.getSqlUnit(), userId);
+            }
+            jdbcTemplate.update("INSERT INTO spending_rollup_state (user_id, built_at) VALUES (?, now())", userId);
+            log.info("Built spending rollups for user {}", userId);
+        });
+    }
+
+    private void lockUser(Long userId, boolean exclusive) {
+        String sql = exclusive
+                ? "SELECT pg_advisory_xact_lock(?, ?)"
+                : "SELECT pg_advisory_xact_lock_shared(?, ?)";
+        jdbcTemplate.query(sql, rs -> null, ROLLUP_LOCK_NAMESPACE, Long.hashCode(userId));
+    }
+
+    // Rows of one granularity whose period_start lies in [fromStart, toStart]
+    private record Segment(RollupGranularity granularity, LocalDate fromStart, LocalDate toStart) {
+    }
+
+    private record RollupKey(RollupGranularity granularity, LocalDate periodStart,
+                             Long categoryId, PaymentMethod paymentMethod) {
+    }
+
+    private static class RollupChange {
+
+        private BigDecimal amount = BigDecimal.ZERO;
+        private int count;
+
+        void add(SpendingDelta delta) {
+            amount = amount.add(delta.amount());
+            count += delta.count();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.moneytracker.service;
+
+import com.moneytracker.event.SpendingChangedEvent;
+import com.moneytracker.event.SpendingDelta;
+import com.moneytracker.model.Transaction;
+import com.moneytracker.model.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Idempotent bulk insert for imported transactions (email, CSV), bypassing Hibernate so that
+ * IDENTITY keys do not force one round trip per row.
+ * Every row carries a natural key in sourceReference, unique per user and source
+ * (uk_transactions_user_source_reference), so re-running an import inserts only what is new.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionIngestionService {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO transactions (user_id, description, amount, transaction_date, payment_method, " +
+            "payment_details, category_id, notes, is_recurring, source, source_reference, created_at, updated_at) " +
+            "VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, now(), now())";
+    private static final int PARAMS_PER_ROW = 11;
+    // The conflict target repeats the index predicate so PostgreSQL can match the partial index
+    private static final String INSERT_SUFFIX =
+            " ON CONFLICT (user_id, source, source_reference) WHERE source_reference IS NOT NULL DO NOTHING " +
+            "RETURNING id, source_reference";
+
+    // PostgreSQL's wire protocol allows at most 65535 bind parameters per statement
+    private static final int MAX_ROWS_PER_STATEMENT = 65535 / PARAMS_PER_ROW;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${ingestion.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Inserts the transactions with multi-row INSERT statements, skipping those the user already
+     * has from the same source. The transactions need their category loaded; inserted ones get
+     * their generated id set. Spending listeners only hear about the rows actually inserted.
+     */
+    @Transactional
+    public IngestionResult ingest(User user, List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            if (transaction.getSourceReference() == null || transaction.getSource() == null) {
+                throw new IllegalArgumentException("Ingested transactions need a source and source reference");
+            }
+        }
+
+        int rowsPerStatement = Math.max(1, Math.min(batchSize, MAX_ROWS_PER_STATEMENT));
+        List<Transaction> inserted = new ArrayList<>();
+        for (int start = 0; start < transactions.size(); start += rowsPerStatement) {
+            insertRows(user, transactions.subList(start, Math.min(start + rowsPerStatement, transactions.size())), inserted);
+        }
+
+        if (!inserted.isEmpty()) {
+            eventPublisher.publishEvent(new SpendingChangedEvent(user.getId(),
+                    inserted.stream().map(SpendingDelta::added).collect(Collectors.toList())));
+        }
+        int skipped = transactions.size() - inserted.size();
+        log.debug("Ingested {} transactions for user {}, {} already present", inserted.size(), user.getId(), skipped);
+        return new IngestionResult(inserted, skipped);
+    }
+
+    // One round trip per statement; RETURNING names exactly the rows that did not conflict
+    private void insertRows(User user, List<Transaction> rows, List<Transaction> inserted) {
+        String sql = INSERT_PREFIX + String.join(", ", Collections.nCopies(rows.size(), ROW_PLACEHOLDERS)) + INSERT_SUFFIX;
+
+        // A reference repeated within the rows is inserted once, for its first occurrence
+        Map<String, Transaction> byReference = new HashMap<>();
+        for (Transaction transaction : rows) {
+            byReference.putIfAbsent(transaction.getSourceReference(), transaction);
+        }
+
+        jdbcTemplate.query(sql, ps -> {
+            int i = 1;
+            for (Transaction transaction : rows) {
+                ps.setLong(i++, user.getId());
+                ps.setString(i++, transaction.getDescription());
+                ps.setBigDecimal(i++, transaction.getAmount());
+                ps.setObject(i++, transaction.getTransactionDate());
+                ps.setString(i++, transaction.getPaymentMethod().name());
+                ps.setString(i++, transaction.getPaymentDetails());
+                ps.setLong(i++, transaction.getCategory().getId());
+                ps.setString(i++, transaction.getNotes());
+                ps.setBoolean(i++, Boolean.TRUE.equals(transaction.getIsRecurring()));
+                ps.setString(i++, transaction.getSource().name());
+                ps.setString(i++, transaction.getSourceReference());
+            }
+        }, rs -> {
+            Transaction transaction = byReference.get(rs.getString("source_reference"));
+            transaction.setId(rs.getLong("id"));
+            inserted.add(transaction);
+        });
+    }
+
+    public record IngestionResult(List<Transaction> inserted, int skipped) {
+    }
+}
@@ -2,6 +2,9 @@ package com.moneytracker.service;
 
 import com.moneytracker.dto.SpendingSummaryDTO;
 import com.moneytracker.dto.TransactionDTO;
+import com.moneytracker.dto.TransactionPageDTO;
+import com.moneytracker.event.SpendingChangedEvent;
+import com.moneytracker.event.SpendingDelta;
 import com.moneytracker.exception.ResourceNotFoundException;
 import com.moneytracker.model.Category;
 import com.moneytracker.model.PaymentMethod;
@@ -10,24 +13,45 @@ import com.moneytracker.model.User;
 import com.moneytracker.repository.CategoryRepository;
 import com.moneytracker.repository.TransactionRepository;
 import com.moneytracker.repository.UserRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class TransactionService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+    public static final int MAX_SUMMARY_RANGES = 12;
+
+    // Keyset start position that sorts after every real row
+    private static final LocalDate FIRST_PAGE_DATE = LocalDate.of(9999, 12, 31);
+    private static final long FIRST_PAGE_ID = Long.MAX_VALUE;
+
     private final TransactionRepository transactionRepository;
     private final CategoryRepository categoryRepository;
     private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * ✅ SECURE - Get only current user's transactions
@@ -89,6 +113,95 @@ public class TransactionService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * ✅ SECURE - One keyset page of the user's transactions, newest first
+     */
+    @Transactional(readOnly = true)
+    public TransactionPageDTO getUserTransactionsPage(Long userId, String cursor, int limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        return toPage(transactionRepository.findUserTransactionsPage(
+                userId, position.date(), position.id(), pageRequest(limit)), limit);
+    }
+
+    @Transactional(readOnly = true)
+    public TransactionPageDTO getUserTransactionsByDateRangePage(Long userId, LocalDate startDate, LocalDate endDate,
+                                                                 String cursor, int limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        return toPage(transactionRepository.findUserTransactionsInDateRangePage(
+                userId, startDate, endDate, position.date(), position.id(), pageRequest(limit)), limit);
+    }
+
+    @Transactional(readOnly = true)
+    public TransactionPageDTO getUserTransactionsByCategoryPage(Long userId, Long categoryId,
+                                                                String cursor, int limit) {
+        // Verify category belongs to user
+        categoryRepository.findByIdAndUserId(categoryId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Category not found or access denied"));
+
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        return toPage(transactionRepository.findUserTransactionsByCategoryPage(
+                userId, categoryId, position.date(), position.id(), pageRequest(limit)), limit);
+    }
+
+    @Transactional(readOnly = true)
+    public TransactionPageDTO getUserTransactionsByPaymentMethodPage(Long userId, PaymentMethod paymentMethod,
+                                                                     String cursor, int limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        return toPage(transactionRepository.findUserTransactionsByPaymentMethodPage(
+                userId, paymentMethod, position.date(), position.id(), pageRequest(limit)), limit);
+    }
+
+    /**
+     * ✅ SECURE - Streams the user's transactions row by row off a database cursor.
+     * Each row is detached once handed to the consumer, so memory stays flat.
+     */
+    @Transactional(readOnly = true)
+    public void streamUserTransactions(Long userId, Consumer<TransactionDTO> consumer) {
+        try (Stream<Transaction> rows = transactionRepository.streamUserTransactions(userId)) {
+            forEachDetached(rows, consumer);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void streamUserTransactionsByDateRange(Long userId, LocalDate startDate, LocalDate endDate,
+                                                  Consumer<TransactionDTO> consumer) {
+        try (Stream<Transaction> rows = transactionRepository.streamUserTransactionsInDateRange(
+                userId, startDate, endDate)) {
+            forEachDetached(rows, consumer);
+        }
+    }
+
+    /**
+     * ✅ SECURE - Throws unless the category belongs to the user.
+     * Streaming callers run this before the response is committed, so a foreign or missing
+     * category is still answered with an error status rather than a truncated stream.
+     */
+    @Transactional(readOnly = true)
+    public void verifyCategoryAccess(Long userId, Long categoryId) {
+        categoryRepository.findByIdAndUserId(categoryId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Category not found or access denied"));
+    }
+
+    /**
+     * Rows are filtered by user as well, so this never returns another user's transactions;
+     * check the category with {@link #verifyCategoryAccess} first to report it properly.
+     */
+    @Transactional(readOnly = true)
+    public void streamUserTransactionsByCategory(Long userId, Long categoryId, Consumer<TransactionDTO> consumer) {
+        try (Stream<Transaction> rows = transactionRepository.streamUserTransactionsByCategory(userId, categoryId)) {
+            forEachDetached(rows, consumer);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void streamUserTransactionsByPaymentMethod(Long userId, PaymentMethod paymentMethod,
+                                                      Consumer<TransactionDTO> consumer) {
+        try (Stream<Transaction> rows = transactionRepository.streamUserTransactionsByPaymentMethod(
+                userId, paymentMethod)) {
+            forEachDetached(rows, consumer);
+        }
+    }
+
     /**
      * ✅ SECURE - Create transaction for specific user
      */
@@ -106,6 +219,7 @@ public class TransactionService {
         transaction.setCategory(category);
 
         Transaction savedTransaction = transactionRepository.save(transaction);
+        eventPublisher.publishEvent(new SpendingChangedEvent(userId, List.of(SpendingDelta.added(savedTransaction))));
         return convertToDTO(savedTransaction);
     }
 
@@ -126,6 +240,8 @@ public class TransactionService {
         Category category = categoryRepository.findByIdAndUserId(transactionDTO.getCategoryId(), userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found or access denied"));
 
+        SpendingDelta previous = SpendingDelta.removed(existingTransaction);
+
         existingTransaction.setDescription(transactionDTO.getDescription());
         existingTransaction.setAmount(transactionDTO.getAmount());
         existingTransaction.setTransactionDate(transactionDTO.getTransactionDate());
@@ -136,6 +252,8 @@ public class TransactionService {
         existingTransaction.setIsRecurring(transactionDTO.getIsRecurring());
 
         Transaction updatedTransaction = transactionRepository.save(existingTransaction);
+        eventPublisher.publishEvent(new SpendingChangedEvent(userId,
+                List.of(previous, SpendingDelta.added(updatedTransaction))));
         return convertToDTO(updatedTransaction);
     }
 
@@ -153,41 +271,93 @@ public class TransactionService {
         }
 
         transactionRepository.delete(transaction);
+        eventPublisher.publishEvent(new SpendingChangedEvent(userId, List.of(SpendingDelta.removed(transaction))));
     }
 
     /**
      * ✅ SECURE - Get spending summary for user only
+     * Total, count and both breakdowns come from a single grouped query.
      */
     @Transactional(readOnly = true)
     public SpendingSummaryDTO getUserSpendingSummary(Long userId, LocalDate startDate, LocalDate endDate) {
-        SpendingSummaryDTO summary = new SpendingSummaryDTO();
+        SummaryAccumulator summary = new SummaryAccumulator(startDate, endDate);
+        for (Object[] row : transactionRepository.getUserSpendingByCategoryAndPaymentMethod(userId, startDate, endDate)) {
+            summary.add((String) row[0], (PaymentMethod) row[1], (BigDecimal) row[2], (Long) row[3]);
+        }
+        return summary.toDTO();
+    }
 
-        // Total spending for user
-        BigDecimal totalSpending = transactionRepository.getUserTotalSpendingInDateRange(userId, startDate, endDate);
-        summary.setTotalSpending(totalSpending != null ? totalSpending : BigDecimal.ZERO);
+    /**
+     * ✅ SECURE - Spending summaries for several date ranges in one database round trip
+     * (e.g. this month vs last month). Ranges are returned in the order given; only days inside
+     * at least one range are read, so far-apart ranges do not scan the gap between them.
+     */
+    @Transactional(readOnly = true)
+    public List<SpendingSummaryDTO> getUserSpendingSummaries(Long userId, List<LocalDate> startDates,
+                                                             List<LocalDate> endDates) {
+        if (startDates.isEmpty() || startDates.size() != endDates.size()) {
+            throw new IllegalArgumentException("Each startDate needs a matching endDate");
+        }
+        if (startDates.size() > MAX_SUMMARY_RANGES) {
+            throw new IllegalArgumentException("At most " + MAX_SUMMARY_RANGES + " date ranges per request");
+        }
+
+        List<SummaryAccumulator> summaries = new ArrayList<>();
+        StringJoiner starts = new StringJoiner(",", "{", "}");
+        StringJoiner ends = new StringJoiner(",", "{", "}");
+        for (int i = 0; i < startDates.size(); i++) {
+            summaries.add(new SummaryAccumulator(startDates.get(i), endDates.get(i)));
+            starts.add(startDates.get(i).toString());
+            ends.add(endDates.get(i).toString());
+        }
 
-        // Category breakdown for user
-        List<Object[]> categoryData = transactionRepository.getUserSpendingByCategory(userId, startDate, endDate);
-        Map<String, BigDecimal> categoryBreakdown = new HashMap<>();
-        for (Object[] row : categoryData) {
-            categoryBreakdown.put((String) row[0], (BigDecimal) row[1]);
+        // Grouped per range in the database, so each range yields a row per category and payment method
+        for (Object[] row : transactionRepository.getUserSpendingByRangeCategoryAndPaymentMethod(
+                userId, starts.toString(), ends.toString())) {
+            SummaryAccumulator summary = summaries.get(((Number) row[0]).intValue() - 1);
+            summary.add((String) row[1], PaymentMethod.valueOf((String) row[2]), (BigDecimal) row[3],
+                    ((Number) row[4]).longValue());
         }
-        summary.setCategoryBreakdown(categoryBreakdown);
 
-        // Payment method breakdown for user
-        List<Object[]> paymentData = transactionRepository.getUserSpendingByPaymentMethod(userId, startDate, endDate);
-        Map<String, BigDecimal> paymentBreakdown = new HashMap<>();
-        for (Object[] row : paymentData) {
-            PaymentMethod method = (PaymentMethod) row[0];
-            paymentBreakdown.put(method.getDisplayName(), (BigDecimal) row[1]);
+        return summaries.stream()
+                .map(SummaryAccumulator::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    private Pageable pageRequest(int limit) {
+        // One extra row tells us whether another page exists
+        return PageRequest.of(0, clampPageSize(limit) + 1);
+    }
+
+    private TransactionPageDTO toPage(List<Transaction> rows, int limit) {
+        int pageSize = clampPageSize(limit);
+        boolean hasMore = rows.size() > pageSize;
+        List<Transaction> pageRows = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            Transaction last = pageRows.get(pageRows.size() - 1);
+            nextCursor = new KeysetCursor(last.getTransactionDate(), last.getId()).encode();
         }
-        summary.setPaymentMethodBreakdown(paymentBreakdown);
 
-        // Transaction count for user
-        List<Transaction> transactions = transactionRepository.findUserTransactionsInDateRange(userId, startDate, endDate);
-        summary.setTransactionCount(transactions.size());
+        List<TransactionDTO> items = pageRows.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        return new TransactionPageDTO(items, nextCursor, hasMore);
+    }
+
+    private int clampPageSize(int limit) {
+        if (limit < 1) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
 
-        return summary;
+    private void forEachDetached(Stream<Transaction> rows, Consumer<TransactionDTO> consumer) {
+        rows.forEach(transaction -> {
+            consumer.accept(convertToDTO(transaction));
+            entityManager.detach(transaction);
+        });
     }
 
     private TransactionDTO convertToDTO(Transaction transaction) {
@@ -216,4 +386,66 @@ public class TransactionService {
         transaction.setIsRecurring(dto.getIsRecurring() != null ? dto.getIsRecurring() : false);
         return transaction;
     }
+
+    /**
+     * Position of the last row of a page: (transactionDate, id), encoded as URL-safe Base64.
+     */
+    private record KeysetCursor(LocalDate date, Long id) {
+
+        static KeysetCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return new KeysetCursor(FIRST_PAGE_DATE, FIRST_PAGE_ID);
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf(':');
+                return new KeysetCursor(
+                        LocalDate.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1))
+                );
+            } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        String encode() {
+            String raw = date + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Folds grouped (category, payment method, sum, count) rows into one summary.
+     */
+    private static class SummaryAccumulator {
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final Map<String, BigDecimal> categoryBreakdown = new HashMap<>();
+        private final Map<String, BigDecimal> paymentBreakdown = new HashMap<>();
+        private BigDecimal total = BigDecimal.ZERO;
+        private long count;
+
+        SummaryAccumulator(LocalDate startDate, LocalDate endDate) {
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+
+        void add(String categoryName, PaymentMethod paymentMethod, BigDecimal amount, long rowCount) {
+            total = total.add(amount);
+            count += rowCount;
+            categoryBreakdown.merge(categoryName, amount, BigDecimal::add);
+            paymentBreakdown.merge(paymentMethod.getDisplayName(), amount, BigDecimal::add);
+        }
+
+        SpendingSummaryDTO toDTO() {
+            SpendingSummaryDTO summary = new SpendingSummaryDTO();
+            summary.setTotalSpending(total);
+            summary.setCategoryBreakdown(categoryBreakdown);
+            summary.setPaymentMethodBreakdown(paymentBreakdown);
+            summary.setTransactionCount((int) count);
+            summary.setStartDate(startDate);
+            summary.setEndDate(endDate);
+            return summary;
+        }
+    }
 }
@@ -0,0 +1,39 @@
+package com.moneytracker.service;
+
+import com.moneytracker.config.CacheConfig;
+import com.moneytracker.event.UserChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Drops every cached view of a user once the change that triggered it has committed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserCacheEvictionListener {
+
+    private static final List<String> USER_CACHES = List.of(
+            CacheConfig.USER_DETAILS_CACHE,
+            CacheConfig.USER_IDS_CACHE
+    );
+
+    private final CacheManager cacheManager;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        for (String cacheName : USER_CACHES) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.evict(event.username());
+            }
+        }
+        log.debug("Evicted cached user entries for: {}", event.username());
+    }
+}
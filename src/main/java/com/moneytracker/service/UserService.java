@@ -1,11 +1,15 @@
 package com.moneytracker.service;
 
+import com.moneytracker.config.CacheConfig;
 import com.moneytracker.dto.EmailConfigDTO;
+import com.moneytracker.event.UserChangedEvent;
 import com.moneytracker.exception.ResourceNotFoundException;
 import com.moneytracker.model.User;
 import com.moneytracker.repository.UserRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -13,14 +17,23 @@ import org.springframework.stereotype.Service;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
+    /**
+     * Loads the managed entity. Entities are never cached: they are mutable, have lazy
+     * associations and belong to one persistence context. Request paths that only need
+     * identity or roles use the cached AuthenticatedUser or the cached id instead.
+     */
     public User getUserByUsername(String username) {
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
     }
 
+    @Cacheable(CacheConfig.USER_IDS_CACHE)
     public Long getUserIdByUsername(String username) {
-        return getUserByUsername(username).getId();
+        return userRepository.findByUsername(username)
+                .map(User::getId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
     }
 
     public User getUserById(Long id) {
@@ -49,7 +62,26 @@ public class UserService {
         if (config.getEmailImapPort() != null)
             user.setEmailImapPort(config.getEmailImapPort());
 
-        return userRepository.save(user);
+        if (config.getEmailPushEnabled() != null)
+            user.setEmailPushEnabled(config.getEmailPushEnabled());
+
+        User saved = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(saved.getId(), saved.getUsername()));
+        return saved;
+    }
+
+    @Transactional
+    public User deactivateUser(Long userId) {
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+
+        user.setIsActive(false);
+        user.setTokenVersion(user.getTokenVersion() + 1); // revokes every token issued so far
+
+        User saved = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(saved.getId(), saved.getUsername()));
+        return saved;
     }
 
     public EmailConfigDTO getEmailParsingConfig(Long userId) {
@@ -61,7 +93,8 @@ public class UserService {
                 user.getEmailImapUsername(),
                 null, // NEVER send password back
                 user.getEmailParsingEnabled(),
-                user.getEmailImapPort()
+                user.getEmailImapPort(),
+                user.getEmailPushEnabled()
         );
     }
 }
@@ -0,0 +1,49 @@
+-- Runs after Hibernate's schema update (spring.jpa.defer-datasource-initialization=true).
+-- Every statement must be safe to run on each startup.
+
+-- Monthly breakdowns were created as JSON; ddl-auto does not change column types
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = ''monthly_analytics'' AND column_name = ''category_breakdown''
+               AND data_type = ''json'') THEN
+        ALTER TABLE monthly_analytics
+            ALTER COLUMN category_breakdown TYPE jsonb USING category_breakdown::jsonb,
+            ALTER COLUMN payment_method_breakdown TYPE jsonb USING payment_method_breakdown::jsonb;
+    END IF;
+END
+';
+
+-- Serves jsonpath predicates (@@) over category breakdowns, e.g. "months where Food > 500"
+CREATE INDEX IF NOT EXISTS idx_monthly_analytics_category_breakdown
+    ON monthly_analytics USING GIN (category_breakdown);
+
+-- Imported transactions are unique per user, source and source reference (email Message-ID,
+-- CSV row key). Rows from before the index existed may collide, e.g. every row of one CSV file
+-- shared the file name; all but the first of each group get a distinct legacy reference.
+DO '
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_indexes WHERE indexname = ''uk_transactions_user_source_reference'') THEN
+        UPDATE transactions t SET source_reference = t.source_reference || ''#legacy-'' || t.id
+        WHERE t.source_reference IS NOT NULL AND EXISTS (
+            SELECT 1 FROM transactions d
+            WHERE d.user_id = t.user_id AND d.source = t.source
+              AND d.source_reference = t.source_reference AND d.id < t.id);
+        CREATE UNIQUE INDEX uk_transactions_user_source_reference
+            ON transactions (user_id, source, source_reference) WHERE source_reference IS NOT NULL;
+    END IF;
+END
+';
+
+-- At most one email rule set is active. Should several be active from before the index
+-- existed, the most recently activated one is kept.
+DO '
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_indexes WHERE indexname = ''uk_email_rule_sets_single_active'') THEN
+        UPDATE email_rule_sets SET is_active = false
+        WHERE is_active AND id <> (SELECT id FROM email_rule_sets WHERE is_active
+                                   ORDER BY activated_at DESC NULLS LAST, version DESC LIMIT 1);
+        CREATE UNIQUE INDEX uk_email_rule_sets_single_active ON email_rule_sets ((true)) WHERE is_active;
+    END IF;
+END
+';
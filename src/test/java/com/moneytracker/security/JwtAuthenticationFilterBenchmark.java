@@ -0,0 +1,143 @@
+package com.moneytracker.security;
+
+import com.moneytracker.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request with a bearer token, before and after tokens were parsed
+ * once per request and cached once verified. The "before" benchmarks replay the old path: the
+ * signing key and parser built on every call, and the token parsed three times per request
+ * (username, then username and expiry again during validation). The "after" benchmarks go
+ * through {@link JwtUtil#parseToken} and {@link JwtAuthenticationFilter} as they are now.
+ * Both filter benchmarks load the account from the same in-memory user details service, so
+ * only the token handling differs.
+ * Run the main method on the test classpath; it is not part of the test suite.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-0123456789";
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    private String token;
+    private JwtUtil jwtUtil;
+    private UserDetailsService userDetailsService;
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheMaxSize", 10_000L);
+        jwtUtil.init();
+
+        User user = new User();
+        user.setId(42L);
+        user.setUsername("alice");
+        user.setRoles(Set.of("ROLE_USER"));
+        token = jwtUtil.generateToken(user);
+
+        AuthenticatedUser account = new AuthenticatedUser(42L, "alice", "{noop}secret",
+                List.of("ROLE_USER"), true, 0L);
+        userDetailsService = username -> account;
+        filter = new JwtAuthenticationFilter(jwtUtil, userDetailsService);
+
+        request = new MockHttpServletRequest("GET", "/api/transactions");
+        request.setServletPath("/api/transactions");
+        request.addHeader("Authorization", "Bearer " + token);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Claims parseBefore() {
+        return parseUncached(token);
+    }
+
+    @Benchmark
+    public Claims parseAfter() {
+        return jwtUtil.parseToken(token);
+    }
+
+    @Benchmark
+    public Authentication filterBefore() throws ServletException, IOException {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String jwt = authHeader.substring(7);
+            String username = parseUncached(jwt).getSubject();
+            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                boolean valid = parseUncached(jwt).getSubject().equals(userDetails.getUsername())
+                        && !parseUncached(jwt).getExpiration().before(new Date());
+                if (valid) {
+                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                            userDetails, null, userDetails.getAuthorities());
+                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                }
+            }
+        }
+        NO_OP_CHAIN.doFilter(request, response);
+        return authenticationOfThisRequest();
+    }
+
+    @Benchmark
+    public Authentication filterAfter() throws ServletException, IOException {
+        filter.doFilterInternal(request, response, NO_OP_CHAIN);
+        return authenticationOfThisRequest();
+    }
+
+    // Each invocation is a new request, so it must start without an authentication
+    private static Authentication authenticationOfThisRequest() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    // How every token read worked before: a fresh key and parser each time
+    private Claims parseUncached(String jwt) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseClaimsJws(jwt)
+                .getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthenticationFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
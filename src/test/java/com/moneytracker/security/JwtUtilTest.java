@@ -0,0 +1,102 @@
+package com.moneytracker.security;
+
+import com.moneytracker.model.User;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-0123456789";
+
+    @Test
+    void servesRepeatedTokenFromCache() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 60_000L);
+        String token = jwtUtil.generateToken(user());
+
+        Claims first = jwtUtil.parseToken(token);
+        Claims second = jwtUtil.parseToken(token);
+
+        assertThat(first).isNotNull();
+        assertThat(second).isSameAs(first);
+        assertThat(jwtUtil.toPrincipal(second).getId()).isEqualTo(42L);
+    }
+
+    @Test
+    void doesNotServeExpiredTokenFromCache() throws InterruptedException {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 1_500L);
+        String token = jwtUtil.generateToken(user());
+        Claims claims = jwtUtil.parseToken(token);
+        assertThat(claims).isNotNull();
+
+        // "exp" has second precision; wait until it is in the past
+        Thread.sleep(Math.max(claims.getExpiration().getTime() - System.currentTimeMillis(), 0) + 1_100L);
+
+        assertThat(jwtUtil.parseToken(token)).isNull();
+        assertThat(jwtUtil.validateToken(token)).isFalse();
+    }
+
+    @Test
+    void tamperedPayloadMissesCache() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 60_000L);
+        String token = jwtUtil.generateToken(user());
+        assertThat(jwtUtil.parseToken(token)).isNotNull();
+
+        String[] parts = token.split("\\.");
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        String payload = new String(decoder.decode(parts[1]), StandardCharsets.UTF_8)
+                .replace("\"uid\":42", "\"uid\":7");
+        String forged = parts[0] + "."
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8))
+                + "." + parts[2];
+
+        assertThat(forged).isNotEqualTo(token);
+        assertThat(jwtUtil.parseToken(forged)).isNull();
+        assertThat(jwtUtil.parseToken(token)).isNotNull();
+    }
+
+    @Test
+    void tamperedSignatureMissesCache() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 60_000L);
+        String token = jwtUtil.generateToken(user());
+        assertThat(jwtUtil.parseToken(token)).isNotNull();
+
+        // First signature character: unlike the last one it has no padding bits
+        int signatureStart = token.lastIndexOf('.') + 1;
+        char replacement = token.charAt(signatureStart) == 'A' ? 'B' : 'A';
+        String forged = token.substring(0, signatureStart) + replacement + token.substring(signatureStart + 1);
+
+        assertThat(jwtUtil.parseToken(forged)).isNull();
+    }
+
+    @Test
+    void rejectsTokenSignedWithAnotherKey() {
+        JwtUtil issuer = jwtUtil("another-secret-another-secret-another-secret-01", 60_000L);
+        JwtUtil jwtUtil = jwtUtil(SECRET, 60_000L);
+
+        assertThat(jwtUtil.parseToken(issuer.generateToken(user()))).isNull();
+    }
+
+    private static JwtUtil jwtUtil(String secret, long expirationMillis) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", secret);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", expirationMillis);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheMaxSize", 100L);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(42L);
+        user.setUsername("alice");
+        user.setRoles(Set.of("ROLE_USER"));
+        return user;
+    }
+}
@@ -0,0 +1,137 @@
+package com.moneytracker.service;
+
+import com.moneytracker.event.BudgetThresholdCrossedEvent;
+import com.moneytracker.model.Budget;
+import com.moneytracker.model.Category;
+import com.moneytracker.model.NotificationType;
+import com.moneytracker.model.PaymentMethod;
+import com.moneytracker.model.Transaction;
+import com.moneytracker.model.User;
+import com.moneytracker.repository.BudgetRepository;
+import com.moneytracker.repository.CategoryRepository;
+import com.moneytracker.repository.TransactionRepository;
+import com.moneytracker.repository.UserRepository;
+import com.moneytracker.support.PostgresTestSupport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Alerts commit their daily claim on their own, so these tests run outside a test transaction.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BudgetService.class, BudgetServiceAlertTest.Metrics.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BudgetServiceAlertTest extends PostgresTestSupport {
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @MockBean
+    private EmailService emailService;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private BudgetRepository budgetRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void dailyRunAndSpendTriggeredAlertShareOneClaimPerDay() {
+        User user = user();
+        Budget budget = overBudget(user);
+
+        budgetService.checkAllBudgetsDaily();
+        budgetService.onThresholdCrossed(new BudgetThresholdCrossedEvent(budget.getId(), new BigDecimal("90.00")));
+        budgetService.checkBudgetAlerts(user.getId());
+        budgetService.checkAllBudgetsDaily();
+
+        verify(notificationService, times(1))
+                .createNotification(any(User.class), eq(NotificationType.BUDGET_ALERT), anyString(), anyString());
+        assertThat(budgetRepository.findById(budget.getId()).orElseThrow().getLastAlertSent()).isNotNull();
+    }
+
+    @Test
+    void spendTriggeredAlertSuppressesTheDailyRun() {
+        Budget budget = overBudget(user());
+
+        budgetService.onThresholdCrossed(new BudgetThresholdCrossedEvent(budget.getId(), new BigDecimal("90.00")));
+        budgetService.checkAllBudgetsDaily();
+
+        verify(notificationService, times(1))
+                .createNotification(any(User.class), any(NotificationType.class), anyString(), anyString());
+    }
+
+    private User user() {
+        String username = "alerts-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("secret");
+        return userRepository.save(user);
+    }
+
+    // 90 of 100 spent, both in the ledger and in the transactions the daily run sums
+    private Budget overBudget(User user) {
+        Category category = new Category();
+        category.setUser(user);
+        category.setName("Food");
+        category = categoryRepository.save(category);
+
+        Transaction transaction = new Transaction();
+        transaction.setUser(user);
+        transaction.setCategory(category);
+        transaction.setDescription("Groceries");
+        transaction.setAmount(new BigDecimal("90.00"));
+        transaction.setPaymentMethod(PaymentMethod.UPI);
+        transaction.setTransactionDate(LocalDate.now());
+        transactionRepository.save(transaction);
+
+        Budget budget = new Budget();
+        budget.setUser(user);
+        budget.setAmount(new BigDecimal("100.00"));
+        budget.setStartDate(LocalDate.now().withDayOfMonth(1));
+        budget.setEndDate(LocalDate.now().withDayOfMonth(1).plusMonths(1).minusDays(1));
+        budget.setSpentAmount(new BigDecimal("90.00"));
+        return budgetRepository.save(budget);
+    }
+
+    @TestConfiguration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.moneytracker.service;
+
+import com.moneytracker.dto.BudgetDTO;
+import com.moneytracker.model.Budget;
+import com.moneytracker.model.Category;
+import com.moneytracker.model.PaymentMethod;
+import com.moneytracker.model.Transaction;
+import com.moneytracker.model.User;
+import com.moneytracker.support.PostgresTestSupport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The budgets listing must run a fixed number of statements however many budgets a user has.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({BudgetService.class, BudgetServiceQueryCountTest.Metrics.class})
+class BudgetServiceQueryCountTest extends PostgresTestSupport {
+
+    private static final LocalDate START = LocalDate.of(2026, 10, 1);
+    private static final LocalDate END = LocalDate.of(2026, 10, 31);
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @MockBean
+    private EmailService emailService;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void listingRunsTheSameStatementsForFewAndManyBudgets() {
+        User few = userWithBudgets("few", 5);
+        User many = userWithBudgets("many", 50);
+
+        long fewStatements = statementsFor(few, 5);
+        long manyStatements = statementsFor(many, 50);
+
+        assertThat(manyStatements).isEqualTo(fewStatements);
+        assertThat(manyStatements).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void unseededBudgetsAreSummedInOneQuery() {
+        User user = user("unseeded");
+        Category food = category(user, "Food");
+        Category travel = category(user, "Travel");
+        spend(user, food, "120.00", START.plusDays(3));
+        spend(user, travel, "30.00", START.plusDays(4));
+        spend(user, food, "500.00", START.minusDays(1));
+        Budget overall = budget(user, null, "1000.00", null);
+        Budget foodBudget = budget(user, food, "200.00", null);
+        Budget travelBudget = budget(user, travel, "100.00", "75.00");
+
+        statistics.clear();
+        List<BudgetDTO> budgets = listAfterClear(user);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(spentOf(budgets, overall)).isEqualByComparingTo("150.00");
+        assertThat(spentOf(budgets, foodBudget)).isEqualByComparingTo("120.00");
+        // Seeded budgets read their ledger, not the transactions
+        assertThat(spentOf(budgets, travelBudget)).isEqualByComparingTo("75.00");
+    }
+
+    private long statementsFor(User user, int expectedBudgets) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        List<BudgetDTO> budgets = budgetService.getUserBudgets(user.getId());
+        assertThat(budgets).hasSize(expectedBudgets);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private List<BudgetDTO> listAfterClear(User user) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        return budgetService.getUserBudgets(user.getId());
+    }
+
+    // Half of the budgets per category, half overall; every other one still unseeded
+    private User userWithBudgets(String username, int count) {
+        User user = user(username);
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            categories.add(category(user, "Category " + i));
+            spend(user, categories.get(i), "10.00", START.plusDays(i));
+        }
+        for (int i = 0; i < count; i++) {
+            Category category = i % 2 == 0 ? categories.get(i % categories.size()) : null;
+            budget(user, category, "100.00", i % 4 < 2 ? null : "10.00");
+        }
+        return user;
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("secret");
+        entityManager.persist(user);
+        return user;
+    }
+
+    private Category category(User user, String name) {
+        Category category = new Category();
+        category.setUser(user);
+        category.setName(name);
+        entityManager.persist(category);
+        return category;
+    }
+
+    private void spend(User user, Category category, String amount, LocalDate date) {
+        Transaction transaction = new Transaction();
+        transaction.setUser(user);
+        transaction.setCategory(category);
+        transaction.setDescription(category.getName());
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setPaymentMethod(PaymentMethod.UPI);
+        transaction.setTransactionDate(date);
+        entityManager.persist(transaction);
+    }
+
+    private Budget budget(User user, Category category, String amount, String spent) {
+        Budget budget = new Budget();
+        budget.setUser(user);
+        budget.setCategory(category);
+        budget.setAmount(new BigDecimal(amount));
+        budget.setStartDate(START);
+        budget.setEndDate(END);
+        budget.setSpentAmount(spent != null ? new BigDecimal(spent) : null);
+        entityManager.persist(budget);
+        return budget;
+    }
+
+    private static BigDecimal spentOf(List<BudgetDTO> budgets, Budget budget) {
+        return budgets.stream()
+                .filter(dto -> dto.getId().equals(budget.getId()))
+                .findFirst()
+                .orElseThrow()
+                .getCurrentSpending();
+    }
+
+    @TestConfiguration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.moneytracker.service;
+
+import com.moneytracker.dto.IngestionResultDTO;
+import com.moneytracker.model.PaymentMethod;
+import com.moneytracker.model.User;
+import com.moneytracker.repository.UserRepository;
+import com.moneytracker.support.PostgresTestSupport;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Import throughput for generated CSV statements of 10,000, 100,000 and 1,000,000 rows into
+ * embedded Postgres, with the configured chunk and batch sizes. Each import is a first upload
+ * for a new user into an emptied transactions table; the score to read is
+ * {@code importStatement:rows}, in rows per second. A million-row import takes a minute or more.
+ * Run the main method on the test classpath; it is not part of the test suite.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CSVImportServiceBenchmark {
+
+    private static final String[] MERCHANTS = {"Coffee", "Groceries", "Train", "Taxi", "Cinema", "Pharmacy",
+            "Electricity", "Mobile recharge", "Restaurant", "Books"};
+    private static final String[] CATEGORIES = {"Food", "Food", "Travel", "Travel", "Entertainment", "Health",
+            "Bills", "Bills", "Food", "Shopping"};
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private CSVImportService csvImportService;
+    private UserRepository userRepository;
+    private JdbcTemplate jdbcTemplate;
+    private MockMultipartFile statement;
+    private int imports;
+    private User user;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long rows;
+    }
+
+    @Setup
+    public void setUp() {
+        context = PostgresTestSupport.startContext(CSVImportService.class, TransactionIngestionService.class,
+                CategoryResolver.class, Notifications.class);
+        csvImportService = context.getBean(CSVImportService.class);
+        userRepository = context.getBean(UserRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        statement = new MockMultipartFile("file", "statement.csv", "text/csv", generate(rows));
+    }
+
+    @Setup(Level.Invocation)
+    public void newUser() {
+        jdbcTemplate.execute("TRUNCATE transactions");
+        String username = "csv-benchmark-" + rows + "-" + imports++;
+        user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("secret");
+        user = userRepository.save(user);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public IngestionResultDTO importStatement(Rows counter) throws Exception {
+        IngestionResultDTO result = csvImportService.importTransactions(statement, user);
+        if (result.getInserted() != rows) {
+            throw new IllegalStateException("Imported " + result.getInserted() + " of " + rows + " rows");
+        }
+        counter.rows += rows;
+        return result;
+    }
+
+    private static byte[] generate(int rows) {
+        Random random = new Random(42);
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        PaymentMethod[] paymentMethods = PaymentMethod.values();
+        StringBuilder csv = new StringBuilder(rows * 64).append("Date,Description,Amount,Category,PaymentMethod,Notes\n");
+        for (int i = 0; i < rows; i++) {
+            int merchant = random.nextInt(MERCHANTS.length);
+            csv.append(start.plusDays(random.nextInt(730))).append(',')
+                    .append(MERCHANTS[merchant]).append(',')
+                    .append(String.format(Locale.ROOT, "%d.%02d", 10 + random.nextInt(5_000), random.nextInt(100))).append(',')
+                    .append(CATEGORIES[merchant]).append(',')
+                    .append(paymentMethods[random.nextInt(paymentMethods.length)]).append(',')
+                    .append(random.nextInt(10) == 0 ? "reimbursable" : "").append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class Notifications {
+
+        @Bean
+        NotificationService notificationService() {
+            return Mockito.mock(NotificationService.class);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CSVImportServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
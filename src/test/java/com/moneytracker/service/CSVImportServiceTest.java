@@ -0,0 +1,157 @@
+package com.moneytracker.service;
+
+import com.moneytracker.dto.IngestionResultDTO;
+import com.moneytracker.model.Transaction;
+import com.moneytracker.model.User;
+import com.moneytracker.repository.UserRepository;
+import com.moneytracker.support.PostgresTestSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Chunks commit on their own, so these tests run outside a test transaction, each with its own user.
+ */
+@DataJpaTest(properties = {"csv.import.chunk-size=3", "ingestion.batch-size=2"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CSVImportService.class, TransactionIngestionService.class, CategoryResolver.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CSVImportServiceTest extends PostgresTestSupport {
+
+    private static final String HEADER = "Date,Description,Amount,Category,PaymentMethod,Notes\n";
+
+    // Seven rows, so chunks of 3, 3 and 1; the coffee rows repeat across the first chunk boundary
+    private static final String STATEMENT = HEADER +
+            "2026-09-01,Coffee,120.00,Food,UPI,\n" +
+            "2026-09-01,Coffee,120.00,Food,UPI,\n" +
+            "2026-09-02,Train,45.00,Travel,DEBIT_CARD,\n" +
+            "2026-09-01,Coffee,120.00,Food,UPI,\n" +
+            "2026-09-03,Groceries,1890.50,Food,CREDIT_CARD,weekly\n" +
+            "2026-09-04,Cinema,300.00,Entertainment,UPI,\n" +
+            "2026-09-05,Rent,15000.00,Housing,NET_BANKING,\n";
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @SpyBean
+    private TransactionIngestionService transactionIngestionService;
+
+    @Autowired
+    private CSVImportService csvImportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        String username = "csv-" + UUID.randomUUID();
+        user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("secret");
+        user = userRepository.save(user);
+    }
+
+    @Test
+    void importsEveryRowIncludingRepeatedIdenticalRows() throws Exception {
+        IngestionResultDTO result = csvImportService.importTransactions(file("statement.csv", STATEMENT), user);
+
+        assertThat(result.getInserted()).isEqualTo(7);
+        assertThat(result.getSkipped()).isZero();
+        assertThat(result.getFailed()).isZero();
+        assertThat(count("Coffee")).isEqualTo(3);
+        assertThat(count(null)).isEqualTo(7);
+    }
+
+    @Test
+    void reUploadingTheSameFileInsertsNothing() throws Exception {
+        csvImportService.importTransactions(file("statement.csv", STATEMENT), user);
+
+        IngestionResultDTO again = csvImportService.importTransactions(file("renamed.csv", STATEMENT), user);
+
+        assertThat(again.getInserted()).isZero();
+        assertThat(again.getSkipped()).isEqualTo(7);
+        assertThat(count(null)).isEqualTo(7);
+    }
+
+    @Test
+    void reUploadingAGrownFileInsertsOnlyTheNewRows() throws Exception {
+        csvImportService.importTransactions(file("statement.csv", STATEMENT), user);
+
+        String grown = STATEMENT +
+                "2026-09-01,Coffee,120.00,Food,UPI,\n" +
+                "2026-09-06,Taxi,250.00,Travel,UPI,\n";
+        IngestionResultDTO result = csvImportService.importTransactions(file("statement.csv", grown), user);
+
+        assertThat(result.getInserted()).isEqualTo(2);
+        assertThat(result.getSkipped()).isEqualTo(7);
+        assertThat(count("Coffee")).isEqualTo(4);
+    }
+
+    @Test
+    void writesFullChunksAndTheRemainder() throws Exception {
+        clearInvocations(transactionIngestionService);
+
+        csvImportService.importTransactions(file("statement.csv", STATEMENT), user);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Transaction>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(transactionIngestionService, times(3)).ingest(any(User.class), chunks.capture());
+        assertThat(chunks.getAllValues()).extracting(List::size).containsExactly(3, 3, 1);
+    }
+
+    @Test
+    void unparsableRowsAreCountedWithoutShiftingTheOthers() throws Exception {
+        String withBadRow = HEADER +
+                "2026-09-01,Coffee,120.00,Food,UPI,\n" +
+                "not-a-date,Broken,1.00,Food,UPI,\n" +
+                "2026-09-01,Coffee,120.00,Food,UPI,\n" +
+                "2026-09-02,Train,45.00,Travel,DEBIT_CARD,\n";
+
+        IngestionResultDTO first = csvImportService.importTransactions(file("statement.csv", withBadRow), user);
+        IngestionResultDTO second = csvImportService.importTransactions(file("statement.csv", withBadRow), user);
+
+        assertThat(first.getInserted()).isEqualTo(3);
+        assertThat(first.getFailed()).isEqualTo(1);
+        assertThat(second.getInserted()).isZero();
+        assertThat(second.getSkipped()).isEqualTo(3);
+        verify(transactionIngestionService, times(2)).ingest(any(User.class), anyList());
+    }
+
+    private int count(String description) {
+        return description == null
+                ? jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions WHERE user_id = ?",
+                        Integer.class, user.getId())
+                : jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions WHERE user_id = ? AND description = ?",
+                        Integer.class, user.getId(), description);
+    }
+
+    private static MockMultipartFile file(String name, String content) {
+        return new MockMultipartFile("file", name, "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
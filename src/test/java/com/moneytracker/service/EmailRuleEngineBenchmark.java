@@ -0,0 +1,166 @@
+package com.moneytracker.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * End-to-end rule matching over a synthetic corpus of 10,000 messages: candidate selection
+ * from sender and subject, then amount extraction from the body with each candidate's
+ * {@link EmailRuleEngine#AMOUNT_REGEX}-based pattern. The built-in rules plus a number of
+ * synthetic merchant rules are matched through the engine's indexes and, for comparison, by
+ * checking every rule's sender keywords and subject regex in turn (how rules were matched
+ * before they were indexed). Scores are per message.
+ * Run the main method on the test classpath; it is not part of the test suite.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmailRuleEngineBenchmark {
+
+    private static final int CORPUS_SIZE = 10_000;
+
+    // Roughly the size of a transactional email's text part
+    private static final String FILLER = ("Thank you for choosing us. This email was sent to you because you have "
+            + "an account with us. Please do not reply to this message. For help visit our support pages. ").repeat(8);
+
+    @Param({"0", "100", "1000"})
+    private int syntheticRules;
+
+    private EmailRuleEngine engine;
+    private List<LinearRule> linearRules;
+    private Message[] corpus;
+
+    @Setup
+    public void setUp() {
+        List<EmailRuleEngine.RuleDefinition> definitions = new ArrayList<>(EmailRuleService.BUILT_IN_RULES);
+        for (int i = 0; i < syntheticRules; i++) {
+            definitions.add(new EmailRuleEngine.RuleDefinition("merchant" + i, "merchant" + i + ".com",
+                    "Your merchant" + i + " (?:order|receipt)", "Total\\s*(?:Rs\\.|INR)\\s*{amount}", "Shopping"));
+        }
+        engine = EmailRuleEngine.compile(definitions);
+
+        linearRules = new ArrayList<>(definitions.size());
+        for (int i = 0; i < definitions.size(); i++) {
+            linearRules.add(new LinearRule(definitions.get(i), engine.getRules().get(i)));
+        }
+
+        Random random = new Random(42);
+        corpus = new Message[CORPUS_SIZE];
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            corpus[i] = message(random);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void indexedRules(Blackhole blackhole) {
+        for (Message message : corpus) {
+            blackhole.consume(extract(engine.findCandidates(message.from(), message.subject()), message.body()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void everyRuleInTurn(Blackhole blackhole) {
+        for (Message message : corpus) {
+            String sender = message.from().toLowerCase(Locale.ROOT);
+            List<EmailRuleEngine.CompiledRule> candidates = new ArrayList<>();
+            for (LinearRule rule : linearRules) {
+                if (rule.matches(sender, message.subject())) {
+                    candidates.add(rule.compiled());
+                }
+            }
+            blackhole.consume(extract(candidates, message.body()));
+        }
+    }
+
+    // What the sync does with a message's candidates: the first rule that finds an amount wins
+    private static BigDecimal extract(List<EmailRuleEngine.CompiledRule> candidates, String body) {
+        for (EmailRuleEngine.CompiledRule rule : candidates) {
+            Optional<BigDecimal> amount = rule.extractAmount(body);
+            if (amount.isPresent()) {
+                return amount.get();
+            }
+        }
+        return null;
+    }
+
+    // 35% built-in merchants, 15% bank alerts, 20% synthetic merchants (when there are any), the rest unrelated
+    private Message message(Random random) {
+        String amount = String.format(Locale.ROOT, "%,d.%02d", 50 + random.nextInt(20_000), random.nextInt(100));
+        int kind = random.nextInt(100);
+        if (kind < 35) {
+            return switch (random.nextInt(5)) {
+                case 0 -> new Message("info@mailer.netflix.com", "Your Netflix bill",
+                        body("Your membership was renewed. Amount charged: Rs. " + amount));
+                case 1 -> new Message("auto-confirm@amazon.in", "Your Amazon.in order #408-" + random.nextInt(1_000_000),
+                        body("Order Total: INR " + amount));
+                case 2 -> new Message("noreply@swiggy.in", "Your Swiggy order was delivered",
+                        body("Bill total ₹ " + amount));
+                case 3 -> new Message("orders@zomato.com", "Your Zomato order from Biryani House",
+                        body("Bill Amount Rs. " + amount));
+                default -> new Message("noreply@uber.com", "Your Tuesday evening trip with Uber",
+                        body("Trip Fare ₹" + amount));
+            };
+        }
+        if (kind < 50) {
+            return new Message("alerts@hdfcbank.net", "Debit Alert: A/c XX" + (1000 + random.nextInt(9000)),
+                    body("Your account has been debited with INR " + amount + " on account of a UPI payment."));
+        }
+        if (kind < 70 && syntheticRules > 0) {
+            int merchant = random.nextInt(syntheticRules);
+            return new Message("orders@merchant" + merchant + ".com", "Your merchant" + merchant + " receipt",
+                    body("Total Rs. " + amount));
+        }
+        return new Message("digest@news" + random.nextInt(50) + ".example.org",
+                "Weekly digest #" + random.nextInt(500) + ": what you missed",
+                body("Top stories this week, reading time " + random.nextInt(30) + " minutes."));
+    }
+
+    private static String body(String line) {
+        return FILLER + "\n" + line + "\n" + FILLER;
+    }
+
+    private record Message(String from, String subject, String body) {
+    }
+
+    private record LinearRule(List<String> senderKeywords, Pattern subjectPattern,
+                              EmailRuleEngine.CompiledRule compiled) {
+
+        LinearRule(EmailRuleEngine.RuleDefinition definition, EmailRuleEngine.CompiledRule compiled) {
+            this(List.of(definition.senderKeywords().toLowerCase(Locale.ROOT).split("\\|")),
+                    Pattern.compile(definition.subjectPattern(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE),
+                    compiled);
+        }
+
+        boolean matches(String sender, String subject) {
+            for (String keyword : senderKeywords) {
+                if (sender.contains(keyword)) {
+                    return true;
+                }
+            }
+            return subjectPattern.matcher(subject).find();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EmailRuleEngineBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
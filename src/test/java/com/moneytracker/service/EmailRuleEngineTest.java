@@ -0,0 +1,74 @@
+package com.moneytracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailRuleEngineTest {
+
+    private final EmailRuleEngine engine = EmailRuleEngine.compile(EmailRuleService.BUILT_IN_RULES);
+
+    @Test
+    void selectsRulesBySenderKeyword() {
+        assertThat(names(engine.findCandidates("alerts@hdfcbank.net", "Hello")))
+                .containsExactly("bank");
+    }
+
+    @Test
+    void selectsRulesBySubjectOnlyWhenItsPatternMatches() {
+        assertThat(names(engine.findCandidates("someone@example.com", "YOUR AMAZON.in ORDER #123")))
+                .containsExactly("amazon");
+        assertThat(names(engine.findCandidates("someone@example.com", "Your Amazon wishlist")))
+                .isEmpty();
+        assertThat(names(engine.findCandidates("someone@example.com", "Account debited")))
+                .containsExactly("bank");
+        assertThat(names(engine.findCandidates("someone@example.com", "Weekly newsletter")))
+                .isEmpty();
+    }
+
+    @Test
+    void keepsRuleOrderAcrossSenderAndSubjectMatches() {
+        assertThat(names(engine.findCandidates("orders@swiggy.in", "Your trip with Uber")))
+                .containsExactly("swiggy", "uber");
+    }
+
+    @Test
+    void extractsAmountsWithThousandsSeparators() {
+        EmailRuleEngine.CompiledRule bank = engine.findCandidates("alerts@sbi.co.in", null).get(0);
+        assertThat(bank.extractAmount("Your account was debited by Rs. 1,23,456.78 today"))
+                .contains(new BigDecimal("123456.78"));
+    }
+
+    @Test
+    void readsRequiredLiteralsOfSubjectPatterns() {
+        assertThat(EmailRuleEngine.SubjectLiterals.of("Your Amazon.*order")).containsExactly("your amazon");
+        assertThat(EmailRuleEngine.SubjectLiterals.of("Debit Alert|Debited")).containsExactly("debit alert", "debited");
+        assertThat(EmailRuleEngine.SubjectLiterals.of("Invoices?\\s+#\\d+")).containsExactly("invoice");
+        assertThat(EmailRuleEngine.SubjectLiterals.of("(?:Order|Purchase) confirmed")).containsExactly(" confirmed");
+        assertThat(EmailRuleEngine.SubjectLiterals.of("Rs\\.\\s*[0-9]{2,}")).containsExactly("rs.");
+    }
+
+    @Test
+    void leavesUnreadableSubjectPatternsUnindexed() {
+        assertThat(EmailRuleEngine.SubjectLiterals.of("\\d+|Order")).isNull();
+        assertThat(EmailRuleEngine.SubjectLiterals.of("(?x) your order")).isNull();
+        assertThat(EmailRuleEngine.SubjectLiterals.of("\\QYour order\\E")).isNull();
+        assertThat(EmailRuleEngine.SubjectLiterals.of("\\x41mazon")).isNull();
+    }
+
+    @Test
+    void runsUnindexedSubjectPatternsOnEverySubject() {
+        EmailRuleEngine custom = EmailRuleEngine.compile(List.of(
+                new EmailRuleEngine.RuleDefinition("numbered", null, "\\d{5,}", "Total {amount}", "Shopping")));
+
+        assertThat(names(custom.findCandidates("shop@example.com", "Order 123456"))).containsExactly("numbered");
+        assertThat(names(custom.findCandidates("shop@example.com", "Shipped"))).isEmpty();
+    }
+
+    private static List<String> names(List<EmailRuleEngine.CompiledRule> rules) {
+        return rules.stream().map(EmailRuleEngine.CompiledRule::getName).toList();
+    }
+}
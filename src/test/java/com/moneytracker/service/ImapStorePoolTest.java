@@ -0,0 +1,121 @@
+package com.moneytracker.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.moneytracker.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Store;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImapStorePoolTest {
+
+    @RegisterExtension
+    static final GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.IMAPS);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ImapStorePool pool;
+
+    @BeforeEach
+    void setUp() {
+        greenMail.setUser("alice@localhost", "alice", "secret");
+        greenMail.setUser("bob@localhost", "bob", "secret");
+
+        pool = new ImapStorePool(meterRegistry);
+        ReflectionTestUtils.setField(pool, "maxPerAccount", 2);
+        ReflectionTestUtils.setField(pool, "maxTotal", 10);
+        ReflectionTestUtils.setField(pool, "maxPerHost", 2);
+        ReflectionTestUtils.setField(pool, "maxWaitMs", 500L);
+        ReflectionTestUtils.setField(pool, "idleTimeoutMs", 300_000L);
+        ReflectionTestUtils.setField(pool, "evictionIntervalMs", 60_000L);
+        ReflectionTestUtils.setField(pool, "timeoutMs", 5_000L);
+        // GreenMail's IMAPS endpoint uses a self-signed certificate
+        ReflectionTestUtils.setField(pool, "sslTrust", "*");
+        pool.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void reusesConnectionAcrossBorrows() throws MessagingException {
+        Store first;
+        try (ImapStorePool.Lease lease = pool.borrow(user("alice"))) {
+            first = lease.store();
+            assertThat(first.isConnected()).isTrue();
+        }
+
+        try (ImapStorePool.Lease lease = pool.borrow(user("alice"))) {
+            assertThat(lease.store()).isSameAs(first);
+        }
+    }
+
+    @Test
+    void discardsInvalidatedConnection() throws MessagingException {
+        Store first;
+        try (ImapStorePool.Lease lease = pool.borrow(user("alice"))) {
+            first = lease.store();
+            lease.invalidate();
+        }
+
+        assertThat(first.isConnected()).isFalse();
+        try (ImapStorePool.Lease lease = pool.borrow(user("alice"))) {
+            assertThat(lease.store()).isNotSameAs(first);
+        }
+    }
+
+    @Test
+    void idleConnectionsCountTowardsHostCap() throws MessagingException {
+        // Two open connections for alice, both returned to the pool and now idle
+        ImapStorePool.Lease a1 = pool.borrow(user("alice"));
+        ImapStorePool.Lease a2 = pool.borrow(user("alice"));
+        a1.close();
+        a2.close();
+        assertThat(gauge("email.imap.pool.idle")).isEqualTo(2);
+
+        // The host is at its cap, so bob's connection replaces alice's idle ones instead of adding a third
+        try (ImapStorePool.Lease bob = pool.borrow(user("bob"))) {
+            assertThat(bob.store().isConnected()).isTrue();
+            assertThat(gauge("email.imap.pool.active") + gauge("email.imap.pool.idle")).isLessThanOrEqualTo(2);
+        }
+    }
+
+    @Test
+    void refusesConnectionWhenHostCapIsBorrowed() throws MessagingException {
+        try (ImapStorePool.Lease a1 = pool.borrow(user("alice"));
+             ImapStorePool.Lease a2 = pool.borrow(user("alice"))) {
+
+            assertThatThrownBy(() -> pool.borrow(user("bob")))
+                    .isInstanceOf(MessagingException.class)
+                    .hasMessageContaining("Too many open connections");
+        }
+
+        // Permits come back once the connections are closed
+        try (ImapStorePool.Lease bob = pool.borrow(user("bob"))) {
+            assertThat(bob.store().isConnected()).isTrue();
+        }
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    private static User user(String name) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmailImapHost("127.0.0.1");
+        user.setEmailImapPort(ServerSetupTest.IMAPS.getPort());
+        user.setEmailImapUsername(name);
+        user.setEmailImapPassword("secret");
+        return user;
+    }
+}
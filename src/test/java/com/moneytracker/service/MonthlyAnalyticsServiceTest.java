@@ -0,0 +1,212 @@
+package com.moneytracker.service;
+
+import com.moneytracker.dto.CategoryDTO;
+import com.moneytracker.dto.TransactionDTO;
+import com.moneytracker.model.MonthlyAnalytics;
+import com.moneytracker.model.PaymentMethod;
+import com.moneytracker.model.User;
+import com.moneytracker.repository.MonthlyAnalyticsRepository;
+import com.moneytracker.repository.UserRepository;
+import com.moneytracker.service.MonthlyAnalyticsService.MonthlyTotals;
+import com.moneytracker.support.PostgresTestSupport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Incrementally maintained rows must always equal a full recompute from the transactions table.
+ * Every write commits on its own, so these tests run outside a test transaction.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({TransactionService.class, CategoryService.class, MonthlyAnalyticsService.class,
+        MonthlyAnalyticsBatchService.class, MonthlyAnalyticsServiceTest.Metrics.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MonthlyAnalyticsServiceTest extends PostgresTestSupport {
+
+    private static final YearMonth AUGUST = YearMonth.of(2026, 8);
+    private static final YearMonth SEPTEMBER = YearMonth.of(2026, 9);
+
+    @MockBean
+    private EmailService emailService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private MonthlyAnalyticsService analyticsService;
+
+    @Autowired
+    private MonthlyAnalyticsBatchService batchService;
+
+    @Autowired
+    private MonthlyAnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private Long food;
+    private Long travel;
+
+    @BeforeEach
+    void setUp() {
+        String username = "analytics-" + UUID.randomUUID();
+        user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("secret");
+        user = userRepository.save(user);
+
+        food = category("Food");
+        travel = category("Travel");
+    }
+
+    @Test
+    void rowFollowsCreateUpdateAndDelete() {
+        TransactionDTO lunch = create("Lunch", "250.00", food, PaymentMethod.UPI, AUGUST.atDay(3));
+        assertMatchesRecompute(AUGUST);
+
+        TransactionDTO flight = create("Flight", "4200.00", travel, PaymentMethod.CREDIT_CARD, AUGUST.atDay(9));
+        create("Groceries", "1300.00", food, PaymentMethod.DEBIT_CARD, AUGUST.atDay(12));
+        assertMatchesRecompute(AUGUST);
+        assertThat(row(AUGUST).getTopCategory()).isEqualTo("Travel");
+
+        // Moves month, category, payment method and amount at once
+        update(lunch, "Dinner", "180.00", travel, PaymentMethod.CASH, SEPTEMBER.atDay(1));
+        assertMatchesRecompute(AUGUST);
+        assertMatchesRecompute(SEPTEMBER);
+
+        update(flight, "Flight", "4500.00", travel, PaymentMethod.CREDIT_CARD, AUGUST.atDay(9));
+        assertMatchesRecompute(AUGUST);
+
+        transactionService.deleteTransaction(flight.getId(), user.getId());
+        assertMatchesRecompute(AUGUST);
+        assertThat(row(AUGUST).getTopCategory()).isEqualTo("Food");
+
+        transactionService.deleteTransaction(lunch.getId(), user.getId());
+        assertMatchesRecompute(SEPTEMBER);
+        assertThat(row(SEPTEMBER).getTransactionCount()).isZero();
+        assertThat(row(SEPTEMBER).getCategoryBreakdown()).isEmpty();
+    }
+
+    @Test
+    void renamedCategoryIsRebuiltOnTheNextWrite() {
+        TransactionDTO lunch = create("Lunch", "250.00", food, PaymentMethod.UPI, AUGUST.atDay(3));
+        create("Taxi", "90.00", travel, PaymentMethod.UPI, AUGUST.atDay(4));
+
+        CategoryDTO renamed = new CategoryDTO();
+        renamed.setName("Eating out");
+        categoryService.updateCategory(food, renamed, user.getId());
+        assertThat(row(AUGUST).getTopCategory()).isEqualTo("Eating out");
+
+        // The delta for the old transaction carries the new name; the old one must not linger
+        transactionService.deleteTransaction(lunch.getId(), user.getId());
+        assertMatchesRecompute(AUGUST);
+        assertThat(row(AUGUST).getCategoryBreakdown()).containsOnlyKeys("Travel");
+    }
+
+    @Test
+    void fullRecomputesWriteWhatTheIncrementalPathMaintains() {
+        create("Lunch", "250.00", food, PaymentMethod.UPI, AUGUST.atDay(3));
+        create("Taxi", "90.00", travel, PaymentMethod.UPI, AUGUST.atDay(4));
+        MonthlyAnalytics incremental = row(AUGUST);
+
+        analyticsService.generateMonthlyAnalytics(user, AUGUST);
+        assertMatchesRecompute(AUGUST);
+        assertThat(row(AUGUST).getTotalExpenses()).isEqualByComparingTo(incremental.getTotalExpenses());
+
+        YearMonth lastMonth = YearMonth.now().minusMonths(1);
+        create("Rent", "15000.00", food, PaymentMethod.NET_BANKING, lastMonth.atDay(1));
+        analyticsRepository.delete(row(lastMonth));
+        batchService.generateMonthlyReportsForAllUsers();
+        assertMatchesRecompute(lastMonth);
+    }
+
+    private void assertMatchesRecompute(YearMonth yearMonth) {
+        MonthlyAnalytics row = row(yearMonth);
+        MonthlyTotals expected = analyticsService.calculateMonthlyTotals(user.getId(), yearMonth);
+
+        assertThat(row.getTotalExpenses()).isEqualByComparingTo(expected.totalExpenses());
+        assertThat(row.getTransactionCount()).isEqualTo(expected.transactionCount());
+        assertThat(row.getAvgTransactionAmount()).isEqualByComparingTo(expected.avgTransactionAmount());
+        assertThat(row.getTopCategory()).isEqualTo(expected.topCategory());
+        assertThat(row.getTopCategoryAmount()).isEqualByComparingTo(expected.topCategoryAmount());
+        assertThat(normalized(row.getCategoryBreakdown())).isEqualTo(normalized(expected.categoryBreakdown()));
+        assertThat(normalized(row.getPaymentMethodBreakdown()))
+                .isEqualTo(normalized(expected.paymentMethodBreakdown()));
+    }
+
+    private MonthlyAnalytics row(YearMonth yearMonth) {
+        return analyticsRepository.findByUserIdAndYearMonth(user.getId(), yearMonth.toString()).orElseThrow();
+    }
+
+    private static Map<String, BigDecimal> normalized(Map<String, BigDecimal> breakdown) {
+        Map<String, BigDecimal> result = new TreeMap<>();
+        breakdown.forEach((name, amount) -> result.put(name, new BigDecimal(amount.toString()).stripTrailingZeros()));
+        return result;
+    }
+
+    private Long category(String name) {
+        CategoryDTO category = new CategoryDTO();
+        category.setName(name);
+        return categoryService.createCategory(category, user.getId()).getId();
+    }
+
+    private TransactionDTO create(String description, String amount, Long categoryId,
+                                  PaymentMethod paymentMethod, LocalDate date) {
+        return transactionService.createTransaction(
+                transaction(description, amount, categoryId, paymentMethod, date), user.getId());
+    }
+
+    private void update(TransactionDTO existing, String description, String amount, Long categoryId,
+                        PaymentMethod paymentMethod, LocalDate date) {
+        transactionService.updateTransaction(existing.getId(),
+                transaction(description, amount, categoryId, paymentMethod, date), user.getId());
+    }
+
+    private static TransactionDTO transaction(String description, String amount, Long categoryId,
+                                              PaymentMethod paymentMethod, LocalDate date) {
+        TransactionDTO dto = new TransactionDTO();
+        dto.setDescription(description);
+        dto.setAmount(new BigDecimal(amount));
+        dto.setCategoryId(categoryId);
+        dto.setPaymentMethod(paymentMethod);
+        dto.setTransactionDate(date);
+        return dto;
+    }
+
+    @TestConfiguration
+    static class Metrics {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
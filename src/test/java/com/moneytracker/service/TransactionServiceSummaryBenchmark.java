@@ -0,0 +1,134 @@
+package com.moneytracker.service;
+
+import com.moneytracker.dto.SpendingSummaryDTO;
+import com.moneytracker.model.Category;
+import com.moneytracker.model.User;
+import com.moneytracker.support.PostgresTestSupport;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spending summaries over a transactions table of about a million rows in embedded Postgres:
+ * 1,000 users, one of them with 100,000 transactions over three years and the rest with 900
+ * each. The heavy user's summaries are measured for a year in one range, for the twelve months
+ * of that year one query at a time, and for the same twelve months in one batched query.
+ * Seeding takes a minute or so per fork.
+ * Run the main method on the test classpath; it is not part of the test suite.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionServiceSummaryBenchmark {
+
+    private static final int USERS = 1_000;
+    private static final int HEAVY_USER_ROWS = 100_000;
+    private static final int ROWS_PER_USER = 900;
+    private static final String[] CATEGORIES = {"Food", "Travel", "Shopping", "Bills", "Entertainment"};
+
+    private static final LocalDate SEED_START = LocalDate.of(2024, 1, 1);
+    private static final int SEED_DAYS = 3 * 365;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private Long heavyUserId;
+    private final List<LocalDate> monthStarts = new ArrayList<>();
+    private final List<LocalDate> monthEnds = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        context = PostgresTestSupport.startContext(TransactionService.class);
+        transactionService = context.getBean(TransactionService.class);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        EntityManager entityManager = context.getBean(EntityManager.class);
+        List<Long> userIds = transactionTemplate.execute(status -> {
+            List<Long> ids = new ArrayList<>(USERS);
+            for (int i = 0; i < USERS; i++) {
+                User user = new User();
+                user.setUsername("summary-benchmark-" + i);
+                user.setEmail("summary-benchmark-" + i + "@example.com");
+                user.setPassword("secret");
+                entityManager.persist(user);
+                for (String name : CATEGORIES) {
+                    Category category = new Category();
+                    category.setUser(user);
+                    category.setName(name);
+                    entityManager.persist(category);
+                }
+                ids.add(user.getId());
+            }
+            return ids;
+        });
+        heavyUserId = userIds.get(0);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        seed(jdbcTemplate, heavyUserId, true, HEAVY_USER_ROWS / CATEGORIES.length);
+        seed(jdbcTemplate, heavyUserId, false, ROWS_PER_USER / CATEGORIES.length);
+        jdbcTemplate.execute("ANALYZE");
+
+        for (int month = 1; month <= 12; month++) {
+            LocalDate start = LocalDate.of(2025, month, 1);
+            monthStarts.add(start);
+            monthEnds.add(start.withDayOfMonth(start.lengthOfMonth()));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public SpendingSummaryDTO oneYear() {
+        return transactionService.getUserSpendingSummary(heavyUserId, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31));
+    }
+
+    @Benchmark
+    public void twelveMonthsOneByOne(Blackhole blackhole) {
+        for (int i = 0; i < monthStarts.size(); i++) {
+            blackhole.consume(transactionService.getUserSpendingSummary(heavyUserId, monthStarts.get(i), monthEnds.get(i)));
+        }
+    }
+
+    @Benchmark
+    public List<SpendingSummaryDTO> twelveMonthsBatched() {
+        return transactionService.getUserSpendingSummaries(heavyUserId, monthStarts, monthEnds);
+    }
+
+    // rowsPerCategory spends in each of the heavy user's categories, or in everyone else's,
+    // on random days of the seeded period
+    private static void seed(JdbcTemplate jdbcTemplate, Long heavyUserId, boolean heavyUser, int rowsPerCategory) {
+        jdbcTemplate.update("""
+                INSERT INTO transactions (user_id, category_id, description, amount, transaction_date,
+                                          payment_method, is_recurring, source, created_at, updated_at)
+                SELECT c.user_id, c.id, c.name, round((1 + random() * 5000)::numeric, 2),
+                       ?::date + floor(random() * ?)::int,
+                       (ARRAY['UPI', 'CREDIT_CARD', 'DEBIT_CARD', 'CASH', 'NET_BANKING'])[1 + floor(random() * 5)::int],
+                       false, 'MANUAL', now(), now()
+                FROM categories c CROSS JOIN generate_series(1, ?)
+                WHERE (c.user_id = ?) = ?
+                """, SEED_START.toString(), SEED_DAYS, rowsPerCategory, heavyUserId, heavyUser);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TransactionServiceSummaryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
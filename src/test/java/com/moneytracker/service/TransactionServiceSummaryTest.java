@@ -0,0 +1,130 @@
+package com.moneytracker.service;
+
+import com.moneytracker.dto.SpendingSummaryDTO;
+import com.moneytracker.model.Category;
+import com.moneytracker.model.PaymentMethod;
+import com.moneytracker.model.Transaction;
+import com.moneytracker.model.User;
+import com.moneytracker.support.PostgresTestSupport;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(TransactionService.class)
+class TransactionServiceSummaryTest extends PostgresTestSupport {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User user;
+    private Category food;
+    private Category travel;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setUsername("summaries");
+        user.setEmail("summaries@example.com");
+        user.setPassword("secret");
+        entityManager.persist(user);
+
+        food = category("Food");
+        travel = category("Travel");
+
+        spend(food, PaymentMethod.UPI, "100.00", LocalDate.of(2026, 1, 5));
+        spend(travel, PaymentMethod.CREDIT_CARD, "40.00", LocalDate.of(2026, 1, 31));
+        spend(food, PaymentMethod.UPI, "999.00", LocalDate.of(2026, 3, 15));
+        spend(food, PaymentMethod.DEBIT_CARD, "25.50", LocalDate.of(2026, 6, 1));
+        spend(travel, PaymentMethod.UPI, "10.00", LocalDate.of(2026, 6, 30));
+        entityManager.flush();
+    }
+
+    @Test
+    void summarisesFarApartRangesWithoutTheGapBetweenThem() {
+        List<SpendingSummaryDTO> summaries = transactionService.getUserSpendingSummaries(user.getId(),
+                List.of(LocalDate.of(2026, 6, 1), LocalDate.of(2026, 1, 1)),
+                List.of(LocalDate.of(2026, 6, 30), LocalDate.of(2026, 1, 31)));
+
+        assertThat(summaries).hasSize(2);
+
+        SpendingSummaryDTO june = summaries.get(0);
+        assertThat(june.getStartDate()).isEqualTo(LocalDate.of(2026, 6, 1));
+        assertThat(june.getTotalSpending()).isEqualByComparingTo("35.50");
+        assertThat(june.getTransactionCount()).isEqualTo(2);
+        assertThat(june.getPaymentMethodBreakdown()).containsOnlyKeys(
+                PaymentMethod.DEBIT_CARD.getDisplayName(), PaymentMethod.UPI.getDisplayName());
+
+        SpendingSummaryDTO january = summaries.get(1);
+        assertThat(january.getTotalSpending()).isEqualByComparingTo("140.00");
+        assertThat(january.getTransactionCount()).isEqualTo(2);
+        assertThat(amounts(january.getCategoryBreakdown())).isEqualTo(Map.of("Food", "100.00", "Travel", "40.00"));
+    }
+
+    @Test
+    void countsADayInEveryRangeThatCoversIt() {
+        List<SpendingSummaryDTO> summaries = transactionService.getUserSpendingSummaries(user.getId(),
+                List.of(LocalDate.of(2026, 1, 1), LocalDate.of(2026, 1, 20), LocalDate.of(2026, 2, 1)),
+                List.of(LocalDate.of(2026, 1, 31), LocalDate.of(2026, 3, 31), LocalDate.of(2026, 2, 28)));
+
+        assertThat(summaries.get(0).getTotalSpending()).isEqualByComparingTo("140.00");
+        assertThat(summaries.get(1).getTotalSpending()).isEqualByComparingTo("1039.00");
+        assertThat(summaries.get(2).getTotalSpending()).isEqualByComparingTo("0");
+        assertThat(summaries.get(2).getTransactionCount()).isZero();
+    }
+
+    @Test
+    void matchesTheSingleRangeSummary() {
+        LocalDate start = LocalDate.of(2026, 1, 1);
+        LocalDate end = LocalDate.of(2026, 6, 30);
+
+        SpendingSummaryDTO single = transactionService.getUserSpendingSummary(user.getId(), start, end);
+        SpendingSummaryDTO batched = transactionService.getUserSpendingSummaries(user.getId(),
+                List.of(start), List.of(end)).get(0);
+
+        assertThat(batched.getTotalSpending()).isEqualByComparingTo(single.getTotalSpending());
+        assertThat(batched.getTransactionCount()).isEqualTo(single.getTransactionCount());
+        assertThat(amounts(batched.getCategoryBreakdown())).isEqualTo(amounts(single.getCategoryBreakdown()));
+        assertThat(amounts(batched.getPaymentMethodBreakdown())).isEqualTo(amounts(single.getPaymentMethodBreakdown()));
+    }
+
+    private Category category(String name) {
+        Category category = new Category();
+        category.setUser(user);
+        category.setName(name);
+        entityManager.persist(category);
+        return category;
+    }
+
+    private void spend(Category category, PaymentMethod paymentMethod, String amount, LocalDate date) {
+        Transaction transaction = new Transaction();
+        transaction.setUser(user);
+        transaction.setCategory(category);
+        transaction.setDescription(category.getName());
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setPaymentMethod(paymentMethod);
+        transaction.setTransactionDate(date);
+        entityManager.persist(transaction);
+    }
+
+    private static Map<String, String> amounts(Map<String, BigDecimal> breakdown) {
+        return breakdown.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().setScale(2).toPlainString()));
+    }
+}
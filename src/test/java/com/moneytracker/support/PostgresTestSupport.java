@@ -0,0 +1,83 @@
+package com.moneytracker.support;
+
+import com.moneytracker.MoneyTrackerApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Base for tests that need the real database: the repositories use Postgres-only SQL
+ * (ON CONFLICT, RETURNING, jsonb, arrays). One server is started per test JVM and shared;
+ * Hibernate creates the schema and schema.sql runs as it does in production.
+ */
+public abstract class PostgresTestSupport {
+
+    private static final EmbeddedPostgres SERVER = start();
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> SERVER.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+        registry.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    /**
+     * Starts a context against the shared server outside the test framework, e.g. for a JMH
+     * benchmark: the JPA slice that {@code @DataJpaTest} gives, plus the given components.
+     * Statement logging is off so it does not dominate the measurement.
+     */
+    public static ConfigurableApplicationContext startContext(Class<?>... components) {
+        return new SpringApplicationBuilder(JpaSlice.class)
+                .sources(components)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + SERVER.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.com.moneytracker=INFO",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN");
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @AutoConfigurationPackage(basePackageClasses = MoneyTrackerApplication.class)
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, DataSourceTransactionManagerAutoConfiguration.class,
+            JdbcTemplateAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+            JpaRepositoriesAutoConfiguration.class, SqlInitializationAutoConfiguration.class,
+            TransactionAutoConfiguration.class})
+    static class JpaSlice {
+    }
+
+    private static EmbeddedPostgres start() {
+        try {
+            EmbeddedPostgres server = EmbeddedPostgres.builder().start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close();
+                } catch (IOException ignored) {
+                    // The JVM is exiting; the data directory is temporary
+                }
+            }));
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start embedded Postgres", e);
+        }
+    }
+}